@@ -0,0 +1,102 @@
+package com.openclassrooms.chatop.archive;
+
+import java.time.LocalDateTime;
+
+/**
+ * Message moved out of the messages table into an archive segment
+ * Stored as one JSON line; the rental name is not archived since it can
+ * change, readers join it from the rental
+ */
+public class ArchivedMessage {
+
+    private Long id;
+    private Long rentalId;
+    private Long userId;
+    private Long ownerId;
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime readAt;
+
+    // Default constructor
+    public ArchivedMessage() {
+    }
+
+    // Constructor used by JPQL projections (see MessageRepository)
+    public ArchivedMessage(Long id, Long rentalId, Long userId, Long ownerId, String message,
+            LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime readAt) {
+        this.id = id;
+        this.rentalId = rentalId;
+        this.userId = userId;
+        this.ownerId = ownerId;
+        this.message = message;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.readAt = readAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    public void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+}
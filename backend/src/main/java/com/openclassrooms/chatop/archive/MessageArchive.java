@@ -0,0 +1,382 @@
+package com.openclassrooms.chatop.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only store of archived messages in compressed segment files
+ * Each archiving run writes a new immutable segment: NDJSON messages sorted
+ * by ID, gzipped in independent blocks (the file is still a valid
+ * multi-member .gz) plus a sparse {@link SegmentIndex}. The index is written
+ * last, so a segment without index is an interrupted write and is ignored.
+ * Indexes are kept in memory, reads only decompress the blocks they need.
+ */
+public class MessageArchive {
+
+    private static final String SEGMENT_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".idx.json";
+
+    private static final Comparator<ArchivedMessage> NEWEST_FIRST = Comparator
+            .comparing(ArchivedMessage::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ArchivedMessage::getId, Comparator.reverseOrder());
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final int blockSize;
+
+    // Segments in write order, read without locking
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    public MessageArchive(Path directory, ObjectMapper objectMapper, int blockSize) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Load the indexes of the segments already written
+     */
+    public synchronized void load() throws IOException {
+        segments.clear();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path indexFile : files.filter(file -> file.getFileName().toString().endsWith(INDEX_SUFFIX))
+                    .sorted().toList()) {
+                String name = indexFile.getFileName().toString();
+                Path segmentFile = directory.resolve(name.substring(0, name.length() - INDEX_SUFFIX.length())
+                        + SEGMENT_SUFFIX);
+                if (Files.exists(segmentFile)) {
+                    segments.add(new Segment(segmentFile, objectMapper.readValue(indexFile.toFile(),
+                            SegmentIndex.class)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Write messages to a new segment
+     * Returns once the segment and its index are durably on disk
+     *
+     * @param messages Messages to archive, sorted by ID
+     */
+    public synchronized void append(List<ArchivedMessage> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        String name = String.format("segment-%06d", nextSegmentNumber());
+        Path segmentFile = directory.resolve(name + SEGMENT_SUFFIX);
+        Path indexFile = directory.resolve(name + INDEX_SUFFIX);
+
+        SegmentIndex index = new SegmentIndex();
+        Path segmentTemp = directory.resolve(name + SEGMENT_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(segmentTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (int start = 0; start < messages.size(); start += blockSize) {
+                List<ArchivedMessage> blockMessages = messages.subList(start,
+                        Math.min(start + blockSize, messages.size()));
+                byte[] block = compress(blockMessages);
+                writeFully(channel, block);
+                index.addBlock(new SegmentIndex.Block(offset, block.length, blockMessages.get(0).getId(),
+                        blockMessages.get(blockMessages.size() - 1).getId()), blockMessages);
+                offset += block.length;
+            }
+            channel.force(true);
+        }
+        Files.move(segmentTemp, segmentFile, StandardCopyOption.ATOMIC_MOVE);
+
+        Path indexTemp = directory.resolve(name + INDEX_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(indexTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, objectMapper.writeValueAsBytes(index));
+            channel.force(true);
+        }
+        Files.move(indexTemp, indexFile, StandardCopyOption.ATOMIC_MOVE);
+
+        segments.add(new Segment(segmentFile, index));
+    }
+
+    private int nextSegmentNumber() {
+        return segments.stream()
+                .map(segment -> segment.file.getFileName().toString())
+                .mapToInt(name -> Integer.parseInt(name.substring("segment-".length(), name.indexOf('.'))))
+                .max().orElse(0) + 1;
+    }
+
+    private byte[] compress(List<ArchivedMessage> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            for (ArchivedMessage message : messages) {
+                gzip.write(objectMapper.writeValueAsBytes(message));
+                gzip.write('\n');
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Find an archived message by ID
+     */
+    public Optional<ArchivedMessage> findById(long id) {
+        ArchivedMessage found = null;
+        for (Segment segment : segments) {
+            int block = segment.index.findBlock(id);
+            if (block >= 0) {
+                for (ArchivedMessage message : readBlocks(segment, List.of(block),
+                        candidate -> candidate.getId() == id)) {
+                    found = found == null ? message : latest(found, message);
+                }
+                if (found != null && found.getReadAt() != null) {
+                    break;
+                }
+            }
+        }
+        return Optional.ofNullable(found);
+    }
+
+    /**
+     * Find the archived messages about a rental, newest first
+     */
+    public List<ArchivedMessage> findByRental(long rentalId) {
+        // A message archived twice (crash between archive and delete) is returned once
+        Map<Long, ArchivedMessage> messages = new LinkedHashMap<>();
+        for (Segment segment : segments) {
+            List<Integer> blocks = segment.index.getRentals().get(rentalId);
+            if (blocks != null) {
+                readBlocks(segment, blocks, message -> message.getRentalId() == rentalId)
+                        .forEach(message -> messages.merge(message.getId(), message, MessageArchive::latest));
+            }
+        }
+        List<ArchivedMessage> sorted = new ArrayList<>(messages.values());
+        sorted.sort(NEWEST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Find the archived messages a user is involved in, newest first: sent by
+     * the user, or received about one of their rentals
+     * Only the blocks listed for the user or for one of the rentals are read
+     */
+    public List<ArchivedMessage> findByUserInvolvement(long userId, Collection<Long> rentalIds) {
+        Map<Long, ArchivedMessage> messages = new LinkedHashMap<>();
+        for (Segment segment : segments) {
+            TreeSet<Integer> blocks = new TreeSet<>(segment.index.getUsers().getOrDefault(userId, List.of()));
+            for (Long rentalId : rentalIds) {
+                blocks.addAll(segment.index.getRentals().getOrDefault(rentalId, List.of()));
+            }
+            if (!blocks.isEmpty()) {
+                readBlocks(segment, List.copyOf(blocks),
+                        message -> message.getUserId() == userId || message.getOwnerId() == userId)
+                        .forEach(message -> messages.merge(message.getId(), message, MessageArchive::latest));
+            }
+        }
+        List<ArchivedMessage> sorted = new ArrayList<>(messages.values());
+        sorted.sort(NEWEST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Find a page of the archived messages about a rental, newest first,
+     * following a (created_at, id) position
+     * Blocks are read newest first by their latest message, skipping those
+     * whose messages are all newer than the position, and reading stops once
+     * the remaining blocks only hold messages older than a full page
+     *
+     * @param afterCreatedAt Creation date of the last message already returned, null for the newest
+     * @param afterId        ID of the last message already returned
+     * @param limit          Maximum number of messages
+     */
+    public List<ArchivedMessage> findPageByRental(long rentalId, LocalDateTime afterCreatedAt, Long afterId,
+            int limit) {
+        List<BlockRef> candidates = new ArrayList<>();
+        for (Segment segment : segments) {
+            List<Integer> blocks = segment.index.getRentals().get(rentalId);
+            if (blocks == null) {
+                continue;
+            }
+            for (int number : blocks) {
+                SegmentIndex.Block block = segment.index.getBlocks().get(number);
+                if (afterCreatedAt == null || block.getMinCreatedAt() == null
+                        || !block.getMinCreatedAt().isAfter(afterCreatedAt)) {
+                    candidates.add(new BlockRef(segment, number, block.getMaxCreatedAt()));
+                }
+            }
+        }
+        if (candidates.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Blocks without dates (older indexes) first, they cannot be skipped
+        candidates.sort(Comparator.comparing((BlockRef ref) -> ref.maxCreatedAt,
+                Comparator.nullsFirst(Comparator.reverseOrder())));
+
+        // A message archived twice compares equal to its copy and is kept once
+        TreeSet<ArchivedMessage> page = new TreeSet<>(NEWEST_FIRST);
+        for (BlockRef ref : candidates) {
+            if (page.size() >= limit && ref.maxCreatedAt != null && page.last().getCreatedAt() != null
+                    && ref.maxCreatedAt.isBefore(page.last().getCreatedAt())) {
+                break;
+            }
+            for (ArchivedMessage message : readBlocks(ref.segment, List.of(ref.number),
+                    message -> message.getRentalId() == rentalId && follows(message, afterCreatedAt, afterId))) {
+                ArchivedMessage copy = page.floor(message);
+                if (copy != null && copy.getId().equals(message.getId())) {
+                    if (latest(copy, message) == copy) {
+                        continue;
+                    }
+                    page.remove(copy);
+                }
+                page.add(message);
+                if (page.size() > limit) {
+                    page.pollLast();
+                }
+            }
+        }
+        return new ArrayList<>(page);
+    }
+
+    /**
+     * Most recent of two copies of a message archived twice: the archiver
+     * re-archives a message marked as read after its first copy was written
+     */
+    private static ArchivedMessage latest(ArchivedMessage copy, ArchivedMessage other) {
+        return copy.getReadAt() == null && other.getReadAt() != null ? other : copy;
+    }
+
+    private static boolean follows(ArchivedMessage message, LocalDateTime afterCreatedAt, Long afterId) {
+        if (afterCreatedAt == null || message.getCreatedAt() == null) {
+            return true;
+        }
+        return message.getCreatedAt().isBefore(afterCreatedAt)
+                || (message.getCreatedAt().isEqual(afterCreatedAt) && message.getId() < afterId);
+    }
+
+    /**
+     * Check if a user sent an archived message about a rental
+     * Only the blocks listed for both the user and the rental are read
+     */
+    public boolean existsByUserAndRental(long userId, long rentalId) {
+        for (Segment segment : segments) {
+            List<Integer> userBlocks = segment.index.getUsers().get(userId);
+            List<Integer> rentalBlocks = segment.index.getRentals().get(rentalId);
+            if (userBlocks == null || rentalBlocks == null) {
+                continue;
+            }
+            TreeSet<Integer> blocks = new TreeSet<>(userBlocks);
+            blocks.retainAll(rentalBlocks);
+            if (!blocks.isEmpty() && !readBlocks(segment, List.copyOf(blocks),
+                    message -> message.getUserId() == userId && message.getRentalId() == rentalId).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<ArchivedMessage> readBlocks(Segment segment, List<Integer> blocks,
+            Predicate<ArchivedMessage> filter) {
+        List<ArchivedMessage> messages = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+            for (int number : blocks) {
+                SegmentIndex.Block block = segment.index.getBlocks().get(number);
+                ByteBuffer buffer = ByteBuffer.allocate(block.getLength());
+                long position = block.getOffset();
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position + buffer.position());
+                    if (read < 0) {
+                        throw new IOException("Truncated archive segment " + segment.file);
+                    }
+                }
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(new ByteArrayInputStream(buffer.array())), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        ArchivedMessage message = objectMapper.readValue(line, ArchivedMessage.class);
+                        if (filter.test(message)) {
+                            messages.add(message);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + segment.file, e);
+        }
+        return messages;
+    }
+
+    /**
+     * Number of segments
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Number of archived messages
+     */
+    public long messageCount() {
+        return segments.stream().mapToLong(segment -> segment.index.getMessageCount()).sum();
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+        private final SegmentIndex index;
+
+        Segment(Path file, SegmentIndex index) {
+            this.file = file;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Block of a segment holding messages about a rental
+     */
+    private static final class BlockRef {
+
+        private final Segment segment;
+        private final int number;
+        private final LocalDateTime maxCreatedAt;
+
+        BlockRef(Segment segment, int number, LocalDateTime maxCreatedAt) {
+            this.segment = segment;
+            this.number = number;
+            this.maxCreatedAt = maxCreatedAt;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.openclassrooms.chatop.archive;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse index of an archive segment, stored next to it as JSON
+ * A segment is a sequence of independently gzipped blocks of messages
+ * sorted by ID. The index keeps, per block, its position and ID range, and
+ * for each rental and user the blocks holding their messages, so a lookup
+ * only decompresses those blocks. The creation date range of each block lets
+ * a page of messages (newest first) skip blocks that cannot hold it.
+ */
+public class SegmentIndex {
+
+    private int messageCount;
+    private List<Block> blocks = new ArrayList<>();
+    // rental ID -> numbers of the blocks holding its messages
+    private Map<Long, List<Integer>> rentals = new HashMap<>();
+    // user (sender) ID -> numbers of the blocks holding their messages
+    private Map<Long, List<Integer>> users = new HashMap<>();
+
+    // Default constructor
+    public SegmentIndex() {
+    }
+
+    /**
+     * Register a block written at the end of the segment
+     */
+    void addBlock(Block block, List<ArchivedMessage> messages) {
+        int number = blocks.size();
+        blocks.add(block);
+        messageCount += messages.size();
+        for (ArchivedMessage message : messages) {
+            addBlockNumber(rentals, message.getRentalId(), number);
+            addBlockNumber(users, message.getUserId(), number);
+            block.include(message.getCreatedAt());
+        }
+    }
+
+    private static void addBlockNumber(Map<Long, List<Integer>> map, Long key, int number) {
+        List<Integer> numbers = map.computeIfAbsent(key, k -> new ArrayList<>());
+        if (numbers.isEmpty() || numbers.get(numbers.size() - 1) != number) {
+            numbers.add(number);
+        }
+    }
+
+    /**
+     * Number of the block whose ID range holds an ID, or -1
+     */
+    int findBlock(long id) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Block block = blocks.get(middle);
+            if (id < block.getFirstId()) {
+                high = middle - 1;
+            } else if (id > block.getLastId()) {
+                low = middle + 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // Getters and Setters
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public void setBlocks(List<Block> blocks) {
+        this.blocks = blocks;
+    }
+
+    public Map<Long, List<Integer>> getRentals() {
+        return rentals;
+    }
+
+    public void setRentals(Map<Long, List<Integer>> rentals) {
+        this.rentals = rentals;
+    }
+
+    public Map<Long, List<Integer>> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<Long, List<Integer>> users) {
+        this.users = users;
+    }
+
+    /**
+     * Position, ID range and creation date range of a gzipped block in the
+     * segment file
+     * The dates are null in indexes written before they were recorded, such
+     * blocks are always read
+     */
+    public static class Block {
+
+        private long offset;
+        private int length;
+        private long firstId;
+        private long lastId;
+        private LocalDateTime minCreatedAt;
+        private LocalDateTime maxCreatedAt;
+
+        // Default constructor
+        public Block() {
+        }
+
+        public Block(long offset, int length, long firstId, long lastId) {
+            this.offset = offset;
+            this.length = length;
+            this.firstId = firstId;
+            this.lastId = lastId;
+        }
+
+        private void include(LocalDateTime createdAt) {
+            if (createdAt == null) {
+                return;
+            }
+            if (minCreatedAt == null || createdAt.isBefore(minCreatedAt)) {
+                minCreatedAt = createdAt;
+            }
+            if (maxCreatedAt == null || createdAt.isAfter(maxCreatedAt)) {
+                maxCreatedAt = createdAt;
+            }
+        }
+
+        // Getters and Setters
+        public long getOffset() {
+            return offset;
+        }
+
+        public void setOffset(long offset) {
+            this.offset = offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public void setLength(int length) {
+            this.length = length;
+        }
+
+        public long getFirstId() {
+            return firstId;
+        }
+
+        public void setFirstId(long firstId) {
+            this.firstId = firstId;
+        }
+
+        public long getLastId() {
+            return lastId;
+        }
+
+        public void setLastId(long lastId) {
+            this.lastId = lastId;
+        }
+
+        public LocalDateTime getMinCreatedAt() {
+            return minCreatedAt;
+        }
+
+        public void setMinCreatedAt(LocalDateTime minCreatedAt) {
+            this.minCreatedAt = minCreatedAt;
+        }
+
+        public LocalDateTime getMaxCreatedAt() {
+            return maxCreatedAt;
+        }
+
+        public void setMaxCreatedAt(LocalDateTime maxCreatedAt) {
+            this.maxCreatedAt = maxCreatedAt;
+        }
+    }
+}
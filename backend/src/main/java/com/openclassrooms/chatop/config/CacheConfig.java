@@ -0,0 +1,79 @@
+package com.openclassrooms.chatop.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cache configuration for in-process read caches
+ * Caches are bounded Caffeine caches recording hit/miss/eviction statistics,
+ * which Actuator publishes under /actuator/metrics/cache.*
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    /**
+     * Rental details keyed by rental ID
+     */
+    public static final String RENTALS_CACHE = "rentals";
+
+    /**
+     * Credentials of the users loaded by AuthService, keyed by email
+     */
+    public static final String USER_DETAILS_CACHE = "userDetails";
+
+    @Value("${cache.rentals.maximum-size:10000}")
+    private long rentalsMaximumSize;
+
+    @Value("${cache.rentals.expire-after-write:10m}")
+    private Duration rentalsExpireAfterWrite;
+
+    @Value("${cache.user-details.maximum-size:10000}")
+    private long userDetailsMaximumSize;
+
+    @Value("${cache.user-details.expire-after-write:5m}")
+    private Duration userDetailsExpireAfterWrite;
+
+    /**
+     * Cache manager bean
+     * Only the caches declared here exist, an unknown name gets no cache.
+     * Wrapped in a transaction-aware proxy so that puts and evictions issued
+     * inside a transaction only reach the cache after commit
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        logger.info("Configuring rentals cache (maximum size: {}, expire after write: {})",
+                rentalsMaximumSize, rentalsExpireAfterWrite);
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(List.of(RENTALS_CACHE, USER_DETAILS_CACHE));
+        cacheManager.registerCustomCache(RENTALS_CACHE, Caffeine.newBuilder()
+                .maximumSize(rentalsMaximumSize)
+                .expireAfterWrite(rentalsExpireAfterWrite)
+                .recordStats()
+                .build());
+
+        logger.info("Configuring user details cache (maximum size: {}, expire after write: {})",
+                userDetailsMaximumSize, userDetailsExpireAfterWrite);
+        cacheManager.registerCustomCache(USER_DETAILS_CACHE, Caffeine.newBuilder()
+                .maximumSize(userDetailsMaximumSize)
+                .expireAfterWrite(userDetailsExpireAfterWrite)
+                .recordStats()
+                .build());
+
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
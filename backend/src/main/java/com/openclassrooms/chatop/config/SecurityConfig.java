@@ -1,9 +1,13 @@
 package com.openclassrooms.chatop.config;
 
+import com.openclassrooms.chatop.security.BoundedPasswordEncoder;
 import com.openclassrooms.chatop.security.JwtAuthenticationEntryPoint;
 import com.openclassrooms.chatop.security.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,6 +18,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,6 +28,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -36,14 +42,33 @@ public class SecurityConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
 
+    @Value("${security.password.bcrypt-strength:12}")
+    private int bcryptStrength;
+
+    // 0 means one thread per available processor
+    @Value("${security.password.threads:0}")
+    private int passwordThreads;
+
+    @Value("${security.password.queue-capacity:100}")
+    private int passwordQueueCapacity;
+
+    @Value("${security.password.timeout:10s}")
+    private Duration passwordTimeout;
+
     /**
      * Password encoder bean using BCrypt
      * BCrypt is recommended for production use due to its adaptive nature
+     * Hashes run on a bounded pool instead of request threads, see
+     * BoundedPasswordEncoder. Raising the strength re-hashes each password at
+     * its owner's next successful login.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        logger.info("Configuring BCrypt password encoder");
-        return new BCryptPasswordEncoder(12); // Strength 12 for good security/performance balance
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = passwordThreads > 0 ? passwordThreads : Runtime.getRuntime().availableProcessors();
+        logger.info("Configuring BCrypt password encoder (strength: {}, threads: {}, queue capacity: {})",
+                bcryptStrength, threads, passwordQueueCapacity);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), threads,
+                passwordQueueCapacity, passwordTimeout, meterRegistry);
     }
 
     /**
@@ -61,11 +86,14 @@ public class SecurityConfig {
      * Links UserDetailsService with the password encoder
      */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService) {
+    public DaoAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+            UserDetailsPasswordService userDetailsPasswordService, PasswordEncoder passwordEncoder) {
         logger.info("Configuring DAO authentication provider");
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Stores a new hash when the stored one has a lower strength than configured
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -114,7 +142,8 @@ public class SecurityConfig {
      * Defines which routes are public/private and configures JWT authentication
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, DaoAuthenticationProvider authenticationProvider)
+            throws Exception {
         logger.info("Configuring security filter chain");
 
         http
@@ -134,6 +163,9 @@ public class SecurityConfig {
 
                 // Configure authorization rules
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches of streams (SSE) were authorized on the initial request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Public endpoints - no authentication required
                         .requestMatchers("/api/auth/register", "/api/auth/login").permitAll()
 
@@ -153,7 +185,7 @@ public class SecurityConfig {
                         .anyRequest().authenticated())
 
                 // Set authentication provider
-                .authenticationProvider(authenticationProvider(null)) // Will be injected by Spring
+                .authenticationProvider(authenticationProvider)
 
                 // Add JWT filter before UsernamePasswordAuthenticationFilter
                 .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,130 @@
+package com.openclassrooms.chatop.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dto.response.ErrorResponse;
+import com.openclassrooms.chatop.dto.response.UserImportEvent;
+import com.openclassrooms.chatop.exceptions.InvalidImportFileException;
+import com.openclassrooms.chatop.service.UserImportService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Administration controller
+ * Endpoints are restricted to the users listed in admin.emails
+ */
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@Tag(name = "Administration", description = "Administration endpoints")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
+
+    public AdminController(UserImportService userImportService, ObjectMapper objectMapper) {
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Import users from an NDJSON or CSV file
+     * The file is read while it is uploaded and the report is streamed back as
+     * NDJSON: one line per rejected row, one progress line per batch, then the
+     * summary. Valid rows are imported even when others are rejected
+     */
+    @PostMapping(value = "/users/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE,
+            TEXT_CSV_VALUE }, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import users", description = "Bulk user creation from an NDJSON file (one {email, name, password} object per line) or a CSV file (header naming the email, name and password columns). Rows are validated like registrations; duplicate and already registered emails are rejected row by row.", tags = {
+            "Administration" }, security = @SecurityRequirement(name = "JWT"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import report streamed as NDJSON", content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = UserImportEvent.class), examples = @ExampleObject(name = "Import report", value = """
+                    {"type":"error","line":3,"email":"john@example.com","error":"Email already registered"}
+                    {"type":"progress","processed":500,"imported":499,"failed":1}
+                    {"type":"summary","processed":742,"imported":741,"failed":1}
+                    """))),
+            @ApiResponse(responseCode = "400", description = "CSV header without the email, name and password columns", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "The user is not an administrator", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public void importUsers(HttpServletRequest request, HttpServletResponse response, Authentication authentication)
+            throws IOException {
+        String userEmail = authentication.getName();
+        logger.info("Request to import users from user: {}", userEmail);
+
+        try {
+            userImportService.checkAdmin(userEmail);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to import users");
+        }
+
+        UserImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                        ? UserImportService.Format.CSV
+                        : UserImportService.Format.NDJSON;
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding("UTF-8");
+        }
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        Writer writer = response.getWriter();
+
+        try {
+            UserImportEvent summary = userImportService.importUsers(request.getReader(), format, event -> {
+                try {
+                    writeEvent(writer, event);
+                    // Rejected rows stay in the servlet buffer, progress reaches the client
+                    if (UserImportEvent.PROGRESS.equals(event.getType())) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writeEvent(writer, summary);
+            writer.flush();
+
+        } catch (InvalidImportFileException e) {
+            // Invalid CSV header, read before anything is written
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+
+        } catch (UncheckedIOException e) {
+            // Usually the client went away, the response is already committed
+            logger.warn("User import report interrupted: {}", e.getCause().getMessage());
+        }
+    }
+
+    private void writeEvent(Writer writer, UserImportEvent event) throws IOException {
+        writer.write(objectMapper.writeValueAsString(event));
+        writer.write('\n');
+    }
+}
@@ -5,8 +5,10 @@ import com.openclassrooms.chatop.dto.request.RegisterRequest;
 import com.openclassrooms.chatop.dto.response.AuthResponse;
 import com.openclassrooms.chatop.dto.response.ErrorResponse;
 import com.openclassrooms.chatop.dto.response.UserResponse;
+import com.openclassrooms.chatop.exceptions.PasswordHashingBusyException;
 import com.openclassrooms.chatop.service.AuthService;
 import com.openclassrooms.chatop.service.LoginService;
+import com.openclassrooms.chatop.service.TokenVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -43,10 +45,13 @@ public class AuthController {
 
     private final AuthService authService;
     private final LoginService loginService;
+    private final TokenVersionService tokenVersionService;
 
-    public AuthController(AuthService authService, LoginService loginService) {
+    public AuthController(AuthService authService, LoginService loginService,
+            TokenVersionService tokenVersionService) {
         this.authService = authService;
         this.loginService = loginService;
+        this.tokenVersionService = tokenVersionService;
     }
 
     /**
@@ -67,7 +72,8 @@ public class AuthController {
                     {
                         "error": "Invalid Data or email already exists"
                     }
-                    """)))
+                    """))),
+            @ApiResponse(responseCode = "503", description = "Password hashing pool saturated, retry after the Retry-After delay", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
 
     public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request) {
@@ -78,6 +84,8 @@ public class AuthController {
             logger.info("User registered successfully: {}", request.getEmail());
             return ResponseEntity.ok(response);
 
+        } catch (PasswordHashingBusyException e) {
+            throw e; // 503 with Retry-After, see SimpleExceptionHandler
         } catch (RuntimeException e) {
             logger.error("Registration failed for email: {} - {}", request.getEmail(), e.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already exists");
@@ -107,6 +115,7 @@ public class AuthController {
                         "timestamp": "2025-01-15T10:30:00Z"
                     }
                     """))),
+            @ApiResponse(responseCode = "503", description = "Password hashing pool saturated, retry after the Retry-After delay", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
     public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
         logger.info("Login request received for email: {}", request.getEmail());
@@ -116,6 +125,8 @@ public class AuthController {
             logger.info("User logged in successfully: {}", request.getEmail());
             return ResponseEntity.ok(response);
 
+        } catch (PasswordHashingBusyException e) {
+            throw e; // 503 with Retry-After, see SimpleExceptionHandler
         } catch (RuntimeException e) {
             logger.error("Login failed for email: {} - {}", request.getEmail(), e.getMessage());
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password");
@@ -162,4 +173,29 @@ public class AuthController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "error: Unauthorized");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Revoke every token of the current user (logout from all devices)
+     * Protected endpoint - requires valid JWT token
+     */
+    @PostMapping("/logout")
+    @Operation(summary = "Logout from all devices", description = "Revoke every JWT token issued to the current user. Tokens are rejected at the latest after jwt.token-version.ttl on other instances.", tags = {
+            "Authentication" }, security = @SecurityRequirement(name = "JWT"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Tokens revoked"),
+            @ApiResponse(responseCode = "401", description = "Invalid or missing JWT token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<Void> logout(Authentication authentication) {
+        String email = authentication.getName();
+        logger.info("Logout request received for user: {}", email);
+
+        try {
+            tokenVersionService.revokeTokens(email);
+            return ResponseEntity.noContent().build();
+
+        } catch (Exception e) {
+            logger.error("Error revoking tokens for user: {}", email, e);
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "error: Unauthorized");
+        }
+    }
+}
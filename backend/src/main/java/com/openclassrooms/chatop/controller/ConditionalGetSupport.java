@@ -0,0 +1,92 @@
+package com.openclassrooms.chatop.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * Helpers for conditional GET handling (ETag / Last-Modified)
+ * Validators are derived from the updated_at timestamps, so they can be
+ * computed from a cheap query without loading the resource itself
+ * Also negotiates the content coding of pre-compressed representations,
+ * which get their own ETag.
+ */
+final class ConditionalGetSupport {
+
+    private ConditionalGetSupport() {
+    }
+
+    /**
+     * Build a strong ETag value from the resource kind and version parts
+     */
+    static String etag(String kind, Object... parts) {
+        StringBuilder etag = new StringBuilder("\"").append(kind);
+        for (Object part : parts) {
+            etag.append('-').append(part instanceof LocalDateTime date ? toEpochMillis(date) : part);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Convert a timestamp to epoch milliseconds, -1 when unknown
+     */
+    static long toEpochMillis(LocalDateTime date) {
+        return date != null ? date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
+    /**
+     * Check if the client sent validators worth checking before loading the
+     * resource
+     */
+    static boolean hasValidators(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Check if an Accept-Encoding header accepts gzip
+     * "gzip" (or "x-gzip") with a non-zero quality value, or "*" when gzip is
+     * not listed. "gzip;q=0" explicitly refuses it.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip != null ? gzip : 0, quality(parts));
+            } else if (coding.equals("*")) {
+                any = quality(parts);
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
+    }
+
+    /**
+     * Quality value of an Accept-Encoding element, 1 when absent and 0 when
+     * malformed (the identity coding is always a safe answer)
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    double quality = Double.parseDouble(parameter.substring(2).trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
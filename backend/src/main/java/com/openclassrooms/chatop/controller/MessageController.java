@@ -1,11 +1,22 @@
 package com.openclassrooms.chatop.controller;
 
+import com.openclassrooms.chatop.dto.request.MarkReadRequest;
 import com.openclassrooms.chatop.dto.request.MessageRequest;
+import com.openclassrooms.chatop.dto.response.ConversationResponse;
+import com.openclassrooms.chatop.dto.response.CursorPageResponse;
 import com.openclassrooms.chatop.dto.response.ErrorResponse;
 import com.openclassrooms.chatop.dto.response.MessageResponse;
+import com.openclassrooms.chatop.dto.response.UnreadCountResponse;
+import com.openclassrooms.chatop.exceptions.MessageQueueFullException;
+import com.openclassrooms.chatop.repository.MessageRepository.ListingVersion;
+import com.openclassrooms.chatop.service.AuthService;
+import com.openclassrooms.chatop.service.MessageEventService;
+import com.openclassrooms.chatop.service.MessageIngestionService;
+import com.openclassrooms.chatop.service.MessageSearchService;
 import com.openclassrooms.chatop.service.MessageService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -16,10 +27,14 @@ import jakarta.validation.Valid;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -38,9 +53,19 @@ public class MessageController {
     private static final Logger logger = LoggerFactory.getLogger(MessageController.class);
 
     private final MessageService messageService;
+    private final MessageIngestionService messageIngestionService;
+    private final MessageEventService messageEventService;
+    private final MessageSearchService messageSearchService;
+    private final AuthService authService;
 
-    public MessageController(MessageService messageService) {
+    public MessageController(MessageService messageService, MessageIngestionService messageIngestionService,
+            MessageEventService messageEventService, MessageSearchService messageSearchService,
+            AuthService authService) {
         this.messageService = messageService;
+        this.messageIngestionService = messageIngestionService;
+        this.messageEventService = messageEventService;
+        this.messageSearchService = messageSearchService;
+        this.authService = authService;
     }
 
     /**
@@ -56,6 +81,11 @@ public class MessageController {
                         "message": "Message sent with success!"
                     }
                     """))),
+            @ApiResponse(responseCode = "202", description = "Message queued, not written yet (messages.ingestion.mode=enqueue, or commit mode past messages.ingestion.commit-timeout)", content = @Content(mediaType = "application/json", examples = @ExampleObject(name = "Message Accepted", value = """
+                    {
+                        "message": "Message accepted"
+                    }
+                    """))),
             @ApiResponse(responseCode = "400", description = "Invalid message data", content = @Content(mediaType = "application/json", examples = @ExampleObject(name = "Message Error", value = """
                     {
                         "error": "Invalid message data"
@@ -65,7 +95,8 @@ public class MessageController {
                     {
                         "error": "Unauthorized - Invalid token"
                     }
-                    """)))
+                    """))),
+            @ApiResponse(responseCode = "429", description = "Message queue full, retry after the Retry-After delay", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
     public ResponseEntity<Map<String, String>> sendMessage(@Valid @RequestBody MessageRequest request,
             Authentication authentication) {
@@ -74,7 +105,11 @@ public class MessageController {
 
         try {
             String userEmail = authentication.getName();
-            messageService.sendMessage(request, userEmail);
+            // Queued but not written yet (ENQUEUE mode or commit timeout)
+            if (!messageIngestionService.submit(request, userEmail)) {
+                logger.info("Message queued from user: {} about rental: {}", userEmail, request.getRentalId());
+                return ResponseEntity.accepted().body(Map.of("message", "Message accepted"));
+            }
 
             logger.info("Message sent successfully from user: {} about rental: {}",
                     userEmail, request.getRentalId());
@@ -83,6 +118,8 @@ public class MessageController {
             Map<String, String> response = Map.of("message", "Message sent with success!");
             return ResponseEntity.ok(response);
 
+        } catch (MessageQueueFullException e) {
+            throw e; // 429 with Retry-After, see SimpleExceptionHandler
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid message data: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid message data");
@@ -101,11 +138,16 @@ public class MessageController {
     /**
      * Get all messages for the authenticated user
      * Returns both sent and received messages
+     * Supports conditional GET: polling clients sending If-None-Match get a 304
+     * computed from an aggregate query, without loading the messages
+     * When "size" or "cursor" is given, a single keyset-paginated page is returned
+     * instead of the whole inbox
      */
     @GetMapping
-    @Operation(summary = "Get all user messages", description = "Retrieve all messages for the authenticated user (sent and received).", tags = {
+    @Operation(summary = "Get all user messages", description = "Retrieve all messages for the authenticated user (sent and received). Pass size and/or cursor to get a single page (newest first) wrapped in {items, next_cursor, has_more}.", tags = {
             "Messages" })
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "304", description = "Messages not modified since the ETag sent by the client"),
             @ApiResponse(responseCode = "200", description = "Messages retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageResponse.class), examples = @ExampleObject(name = "Messages List", value = """
                     [
                         {
@@ -126,18 +168,35 @@ public class MessageController {
                         "code": "SERVER_500",
                         "timestamp": "2025-01-15T10:30:00Z"
                     }
-                    """)))
+                    """))),
+            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<List<MessageResponse>> getUserMessages(Authentication authentication) {
+    public ResponseEntity<?> getUserMessages(Authentication authentication,
+            @Parameter(description = "Page size (1-100), enables pagination") @RequestParam(value = "size", required = false) Integer size,
+            @Parameter(description = "Cursor returned as next_cursor by the previous page") @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest webRequest) {
+        if (size != null || cursor != null) {
+            return getUserMessagesPage(authentication.getName(), size, cursor);
+        }
+
         logger.info("Request to get messages for user: {}", authentication.getName());
 
         try {
             String userEmail = authentication.getName();
+
+            if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                    && webRequest.checkNotModified(messagesEtag(messageService.getUserMessagesVersion(userEmail)))) {
+                logger.info("Messages not modified for user: {}", userEmail);
+                return null;
+            }
+
             List<MessageResponse> messages = messageService.getUserMessages(userEmail);
 
             logger.info("Successfully retrieved {} messages for user: {}",
                     messages.size(), userEmail);
-            return ResponseEntity.ok(messages);
+            return ResponseEntity.ok()
+                    .eTag(messagesEtag(MessageService.listingVersion(messages)))
+                    .body(messages);
 
         } catch (Exception e) {
             logger.error("Error retrieving messages for user: {}", authentication.getName(), e);
@@ -145,4 +204,247 @@ public class MessageController {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * ETag of the user's message listing, the same whether the version was
+     * queried or computed from the loaded messages
+     */
+    private static String messagesEtag(ListingVersion version) {
+        return ConditionalGetSupport.etag("messages", version.getCount(), version.getLastId(),
+                version.getLastUpdatedAt(), version.getLastReadAt());
+    }
+
+    /**
+     * Get one page of the authenticated user's messages
+     */
+    private ResponseEntity<CursorPageResponse<MessageResponse>> getUserMessagesPage(String userEmail, Integer size,
+            String cursor) {
+        logger.info("Request to get messages page for user: {} (size: {})", userEmail, size);
+
+        try {
+            CursorPageResponse<MessageResponse> page = messageService.getUserMessagesPage(userEmail, cursor, size);
+            logger.info("Successfully retrieved {} messages for user: {} (has more: {})",
+                    page.getItems().size(), userEmail, page.isHasMore());
+            return ResponseEntity.ok(page);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid pagination parameters: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pagination parameters");
+        } catch (Exception e) {
+            logger.error("Error retrieving messages page for user: {}", userEmail, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Get the conversations of the current user, one line per rental and sender
+     * with the last message, most recently active first
+     */
+    @GetMapping("/conversations")
+    @Operation(summary = "Get conversations", description = "Retrieve one page of the conversations of the current user (as sender or rental owner): one line per rental and sender with the last message and the message count, most recently active first.", tags = {
+            "Messages" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Conversations retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<CursorPageResponse<ConversationResponse>> getConversations(Authentication authentication,
+            @Parameter(description = "Page size (1-100, default 20)") @RequestParam(value = "size", required = false) Integer size,
+            @Parameter(description = "Cursor returned as next_cursor by the previous page") @RequestParam(value = "cursor", required = false) String cursor) {
+        String userEmail = authentication.getName();
+        logger.info("Request to get conversations for user: {}", userEmail);
+
+        try {
+            CursorPageResponse<ConversationResponse> page = messageService.getConversationsPage(userEmail, cursor,
+                    size);
+            logger.info("Successfully retrieved {} conversations for user: {} (has more: {})",
+                    page.getItems().size(), userEmail, page.isHasMore());
+            return ResponseEntity.ok(page);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid pagination parameters: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pagination parameters");
+        } catch (RuntimeException e) {
+            logger.warn("Error retrieving conversations for user {}: {}", userEmail, e.getMessage());
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Search the messages of the current user by their words
+     * Served from an in-memory index, results are ranked by relevance
+     */
+    @GetMapping("/search")
+    @Operation(summary = "Search messages", description = "Full-text search over the messages the current user sent or received about their rentals (message and rental name). Accents and case are ignored, results are ranked by relevance.", tags = {
+            "Messages" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching messages, best first", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Missing query or invalid limit", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<List<MessageResponse>> searchMessages(Authentication authentication,
+            @Parameter(description = "Words to search for", example = "visite jardin") @RequestParam("q") String query,
+            @Parameter(description = "Maximum number of results (1-100, default 20)") @RequestParam(value = "limit", required = false) Integer limit) {
+        String userEmail = authentication.getName();
+        logger.info("Request to search messages of user {}: {}", userEmail, query);
+
+        try {
+            List<MessageResponse> messages = messageSearchService.search(userEmail, query, limit);
+            logger.info("Successfully found {} messages for: {}", messages.size(), query);
+            return ResponseEntity.ok(messages);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid search parameters: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search parameters");
+        } catch (RuntimeException e) {
+            logger.warn("Error searching messages of user {}: {}", userEmail, e.getMessage());
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Get the number of unread messages of the current user
+     * Served from a counter maintained on write, messages are not counted
+     */
+    @GetMapping("/unread-count")
+    @Operation(summary = "Get unread message count", description = "Number of received messages not marked as read yet.", tags = {
+            "Messages" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Unread count retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UnreadCountResponse.class), examples = @ExampleObject(name = "Unread Count", value = """
+                    {
+                        "unread_count": 3
+                    }
+                    """))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<UnreadCountResponse> getUnreadCount(Authentication authentication) {
+        String userEmail = authentication.getName();
+        logger.debug("Request to get unread count for user: {}", userEmail);
+
+        try {
+            return ResponseEntity.ok(new UnreadCountResponse(messageService.getUnreadCount(userEmail), null));
+
+        } catch (Exception e) {
+            logger.error("Error retrieving unread count for user: {}", userEmail, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Mark received messages as read
+     * All of them, those about one rental, and/or those up to a message ID
+     */
+    @PostMapping("/read")
+    @Operation(summary = "Mark messages as read", description = "Mark the received messages as read in a single update, optionally only those about a rental and/or up to a message ID. Returns the number of messages marked and the remaining unread count.", tags = {
+            "Messages" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Messages marked as read", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UnreadCountResponse.class), examples = @ExampleObject(name = "Marked As Read", value = """
+                    {
+                        "unread_count": 1,
+                        "marked": 2
+                    }
+                    """))),
+            @ApiResponse(responseCode = "400", description = "Invalid mark-read parameters", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<UnreadCountResponse> markAsRead(
+            @Valid @RequestBody(required = false) MarkReadRequest request,
+            Authentication authentication) {
+        String userEmail = authentication.getName();
+        logger.info("Request to mark messages as read for user: {}", userEmail);
+
+        try {
+            MarkReadRequest markRead = request != null ? request : new MarkReadRequest();
+            return ResponseEntity.ok(messageService.markAsRead(markRead, userEmail));
+
+        } catch (RuntimeException e) {
+            logger.warn("Error marking messages as read for user {}: {}", userEmail, e.getMessage());
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Stream new messages of the current user (Server-Sent Events)
+     * Pushes every message sent or received once it is committed
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream new messages", description = "Server-Sent Events stream of the messages sent or received by the current user, pushed as soon as they are committed. Each event is named \"message\", its id is the message ID and its data a message object. The stream is closed after messages.events.timeout, clients reconnect.", tags = {
+            "Messages" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened", content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = MessageResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public SseEmitter streamMessages(Authentication authentication) {
+        String userEmail = authentication.getName();
+        logger.info("Request to stream messages for user: {}", userEmail);
+
+        try {
+            return messageEventService.subscribe(userEmail);
+        } catch (RuntimeException e) {
+            logger.warn("Error opening message stream for user {}: {}", userEmail, e.getMessage());
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Get the messages about a rental
+     * Only the rental owner and users who sent messages about it can see them
+     * When "size" or "cursor" is given, a single keyset-paginated page is returned
+     */
+    @GetMapping("/rental/{rentalId}")
+    @Operation(summary = "Get rental messages", description = "Retrieve the messages about a rental, newest first. Pass size and/or cursor to get a single page wrapped in {items, next_cursor, has_more}.", tags = {
+            "Messages" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Messages retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Not the rental owner and no message sent about it", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Rental not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> getRentalMessages(@PathVariable Long rentalId,
+            @Parameter(description = "Page size (1-100), enables pagination") @RequestParam(value = "size", required = false) Integer size,
+            @Parameter(description = "Cursor returned as next_cursor by the previous page") @RequestParam(value = "cursor", required = false) String cursor,
+            Authentication authentication) {
+        String userEmail = authentication.getName();
+        logger.info("Request to get messages for rental {} by user: {}", rentalId, userEmail);
+
+        try {
+            Long userId = authService.getUserId(authentication);
+            if (size != null || cursor != null) {
+                CursorPageResponse<MessageResponse> page = messageService.getMessagesByRentalPage(rentalId,
+                        userId, cursor, size);
+                logger.info("Successfully retrieved {} messages for rental {} (has more: {})",
+                        page.getItems().size(), rentalId, page.isHasMore());
+                return ResponseEntity.ok(page);
+            }
+
+            List<MessageResponse> messages = messageService.getMessagesByRental(rentalId, userId);
+            logger.info("Successfully retrieved {} messages for rental {}", messages.size(), rentalId);
+            return ResponseEntity.ok(messages);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid pagination parameters: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pagination parameters");
+        } catch (RuntimeException e) {
+            logger.warn("Error retrieving messages for rental {}: {}", rentalId, e.getMessage());
+            if (e.getMessage() != null && e.getMessage().contains("not authorized")) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
+            }
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Rental not found");
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+}
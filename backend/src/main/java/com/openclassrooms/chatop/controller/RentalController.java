@@ -1,10 +1,13 @@
 package com.openclassrooms.chatop.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,19 +17,32 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.openclassrooms.chatop.dto.request.RentalRequest;
+import com.openclassrooms.chatop.dto.response.CursorPageResponse;
 import com.openclassrooms.chatop.dto.response.ErrorResponse;
+import com.openclassrooms.chatop.dto.response.RentalFilterResponse;
+import com.openclassrooms.chatop.dto.response.RentalStatisticsResponse;
 import com.openclassrooms.chatop.dto.response.RentalResponse;
 import com.openclassrooms.chatop.entity.Rental;
+import com.openclassrooms.chatop.service.RentalCatalogueService;
+import com.openclassrooms.chatop.service.RentalFilterService;
+import com.openclassrooms.chatop.service.RentalSearchService;
+import com.openclassrooms.chatop.service.RentalStatisticsService;
 import com.openclassrooms.chatop.service.RentalService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -34,6 +50,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * Rental controller handling CRUD operations for rental properties
@@ -49,19 +66,32 @@ public class RentalController {
     private static final Logger logger = LoggerFactory.getLogger(RentalController.class);
 
     private final RentalService rentalService;
-
-    public RentalController(RentalService rentalService) {
+    private final RentalSearchService rentalSearchService;
+    private final RentalFilterService rentalFilterService;
+    private final RentalStatisticsService rentalStatisticsService;
+    private final ObjectMapper objectMapper;
+
+    public RentalController(RentalService rentalService, RentalSearchService rentalSearchService,
+            RentalFilterService rentalFilterService, RentalStatisticsService rentalStatisticsService,
+            ObjectMapper objectMapper) {
         this.rentalService = rentalService;
+        this.rentalSearchService = rentalSearchService;
+        this.rentalFilterService = rentalFilterService;
+        this.rentalStatisticsService = rentalStatisticsService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Get all rentals
      * Public for browsing available rentals
+     * When "size" or "cursor" is given, a single keyset-paginated page is returned
+     * instead of the whole catalogue
      */
     @GetMapping
-    @Operation(summary = "Get all rentals", description = "Retrieve all available rental properties.", tags = {
+    @Operation(summary = "Get all rentals", description = "Retrieve all available rental properties. Pass 'size' and/or 'cursor' to get a keyset-paginated page ({items, next_cursor, has_more}) instead of the full list.", tags = {
             "Rentals" }, security = @SecurityRequirement(name = "JWT"))
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "304", description = "Catalogue not modified since the ETag sent by the client"),
             @ApiResponse(responseCode = "200", description = "Rentals retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = RentalResponse.class), examples = @ExampleObject(name = "Rentals List", value = """
                     [
                         {
@@ -92,13 +122,33 @@ public class RentalController {
                     }
                     """))),
     })
-    public ResponseEntity<List<RentalResponse>> getAllRentals() {
+    public ResponseEntity<?> getAllRentals(
+            @Parameter(description = "Page size (1-100), enables pagination") @RequestParam(value = "size", required = false) Integer size,
+            @Parameter(description = "Cursor returned as next_cursor by the previous page") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Sort order on creation date: 'desc' (default) or 'asc'") @RequestParam(value = "sort", required = false) String sort,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (size != null || cursor != null) {
+            return getRentalsPage(size, cursor, sort);
+        }
+
         logger.info("Request to get all rentals");
 
         try {
-            List<RentalResponse> rentals = rentalService.getAllRentals();
-            logger.info("Successfully retrieved {} rentals", rentals.size());
-            return ResponseEntity.ok(rentals);
+            // Pre-serialized bytes are written as-is, gzipped when the client accepts it
+            RentalCatalogueService.Snapshot snapshot = rentalService.getCatalogueSnapshot();
+            logger.info("Successfully retrieved {} rentals", snapshot.getSize());
+
+            // Spring answers 304 itself when If-None-Match matches the ETag
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (ConditionalGetSupport.acceptsGzip(acceptEncoding)) {
+                return response.eTag(ConditionalGetSupport.etag("rentals", snapshot.getContentHash(), "gzip"))
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .body(snapshot.getGzippedJson());
+            }
+            return response.eTag(ConditionalGetSupport.etag("rentals", snapshot.getContentHash()))
+                    .body(snapshot.getJson());
 
         } catch (Exception e) {
             logger.error("Error retrieving all rentals", e);
@@ -106,6 +156,160 @@ public class RentalController {
         }
     }
 
+    /**
+     * Get one keyset-paginated page of rentals
+     */
+    private ResponseEntity<CursorPageResponse<RentalResponse>> getRentalsPage(Integer size, String cursor, String sort) {
+        logger.info("Request to get rentals page (size: {}, sort: {})", size, sort);
+
+        try {
+            CursorPageResponse<RentalResponse> page = rentalService.getRentalsPage(cursor, size, sort);
+            logger.info("Successfully retrieved {} rentals (has more: {})", page.getItems().size(), page.isHasMore());
+            return ResponseEntity.ok(page);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid pagination parameters: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pagination parameters");
+        } catch (Exception e) {
+            logger.error("Error retrieving rentals page", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Stream the whole rental catalogue
+     * Same JSON array as GET /api/rentals, but each rental is written to the
+     * response as soon as it is read from the database, so memory use does not
+     * grow with the catalogue (map front-end, partner sync jobs)
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Stream all rentals", description = "Retrieve all rental properties as a JSON array written incrementally while rows are read. Intended for clients that need the full catalogue.", tags = {
+            "Rentals" }, security = @SecurityRequirement(name = "JWT"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rentals streamed successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = RentalResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public void streamAllRentals(HttpServletResponse response) throws IOException {
+        logger.info("Request to stream all rentals");
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        // Let the servlet buffer decide when to flush instead of flushing every row
+        ObjectWriter writer = objectMapper.writerFor(RentalResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            long count = rentalService.streamAllRentals(rental -> {
+                try {
+                    writer.writeValue(generator, rental);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            logger.info("Successfully streamed {} rentals", count);
+
+        } catch (UncheckedIOException e) {
+            // Usually the client went away, the response is already committed
+            logger.warn("Rental stream interrupted: {}", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Search rentals by the words of their name and description
+     * Served from an in-memory index, results are ranked by relevance
+     */
+    @GetMapping("/search")
+    @Operation(summary = "Search rentals", description = "Full-text search over rental names and descriptions. Accents and case are ignored, results are ranked by relevance.", tags = {
+            "Rentals" }, security = @SecurityRequirement(name = "JWT"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching rentals, best first", content = @Content(mediaType = "application/json", schema = @Schema(implementation = RentalResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Missing query or invalid limit", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<List<RentalResponse>> searchRentals(
+            @Parameter(description = "Words to search for", example = "appartement lumineux") @RequestParam("q") String query,
+            @Parameter(description = "Maximum number of results (1-100, default 20)") @RequestParam(value = "limit", required = false) Integer limit) {
+        logger.info("Request to search rentals: {}", query);
+
+        try {
+            List<RentalResponse> rentals = rentalSearchService.search(query, limit);
+            logger.info("Successfully found {} rentals for: {}", rentals.size(), query);
+            return ResponseEntity.ok(rentals);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid search parameters: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search parameters");
+        } catch (Exception e) {
+            logger.error("Error searching rentals: {}", query, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Filter rentals on price and surface ranges
+     * Served from an in-memory columnar copy of the rentals
+     */
+    @GetMapping("/filter")
+    @Operation(summary = "Filter rentals", description = "Filter rentals on price and surface ranges (bounds included) with a multi-attribute sort, e.g. sort=price,-surface. Rentals without a surface are excluded when a surface bound is given.", tags = {
+            "Rentals" }, security = @SecurityRequirement(name = "JWT"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of matches and the first matching rentals", content = @Content(mediaType = "application/json", schema = @Schema(implementation = RentalFilterResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid range, sort or limit", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<RentalFilterResponse> filterRentals(
+            @Parameter(description = "Minimum price", example = "500") @RequestParam(value = "min_price", required = false) BigDecimal minPrice,
+            @Parameter(description = "Maximum price", example = "1200") @RequestParam(value = "max_price", required = false) BigDecimal maxPrice,
+            @Parameter(description = "Minimum surface", example = "40") @RequestParam(value = "min_surface", required = false) BigDecimal minSurface,
+            @Parameter(description = "Maximum surface", example = "80") @RequestParam(value = "max_surface", required = false) BigDecimal maxSurface,
+            @Parameter(description = "Sort keys among price, surface and created_at, \"-\" prefix for descending (default: id)", example = "price,-surface") @RequestParam(value = "sort", required = false) String sort,
+            @Parameter(description = "Maximum number of rentals returned (1-500, default 50)") @RequestParam(value = "limit", required = false) Integer limit) {
+        logger.info("Request to filter rentals: price [{}, {}], surface [{}, {}], sort {}", minPrice, maxPrice,
+                minSurface, maxSurface, sort);
+
+        try {
+            RentalFilterResponse result = rentalFilterService.filter(minPrice, maxPrice, minSurface, maxSurface,
+                    sort, limit);
+            logger.info("Successfully filtered {} rentals", result.getTotal());
+            return ResponseEntity.ok(result);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid filter parameters: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid filter parameters");
+        } catch (Exception e) {
+            logger.error("Error filtering rentals", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    /**
+     * Get rental market statistics
+     * Maintained incrementally on rental changes, never recomputed per request
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get rental statistics", description = "Retrieve the number of rentals, mean and median price, price per square meter and price/surface histograms", tags = {
+            "Rentals" }, security = @SecurityRequirement(name = "JWT"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rental statistics", content = @Content(mediaType = "application/json", schema = @Schema(implementation = RentalStatisticsResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<RentalStatisticsResponse> getRentalStatistics() {
+        logger.info("Request to get rental statistics");
+
+        try {
+            RentalStatisticsResponse statistics = rentalStatisticsService.getStatistics();
+            logger.info("Successfully retrieved statistics for {} rentals", statistics.getCount());
+            return ResponseEntity.ok(statistics);
+
+        } catch (Exception e) {
+            logger.error("Error retrieving rental statistics", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
     /**
      * Get rental by ID
      * Public for viewing rental details
@@ -114,6 +318,7 @@ public class RentalController {
     @Operation(summary = "Get rental by ID", description = "Retrieve a specific rental property by its ID.", tags = {
             "Rentals" }, security = @SecurityRequirement(name = "JWT"))
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "304", description = "Rental not modified since the ETag / Last-Modified sent by the client"),
             @ApiResponse(responseCode = "200", description = "Rental retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = RentalResponse.class), examples = @ExampleObject(name = "Rental Details", value = """
                     {
                         "id": 1,
@@ -146,9 +351,13 @@ public class RentalController {
         logger.info("Request to get rental with ID: {}", id);
 
         try {
+            // Served from the rentals cache, Spring answers 304 when the validators match
             RentalResponse rental = rentalService.getRentalById(id);
             logger.info("Successfully retrieved rental: {}", rental.getName());
-            return ResponseEntity.ok(rental);
+            return ResponseEntity.ok()
+                    .eTag(ConditionalGetSupport.etag("rental", rental.getId(), rental.getUpdatedAt()))
+                    .lastModified(ConditionalGetSupport.toEpochMillis(rental.getUpdatedAt()))
+                    .body(rental);
 
         } catch (RuntimeException e) {
             logger.warn("Rental not found with ID: {}", id);
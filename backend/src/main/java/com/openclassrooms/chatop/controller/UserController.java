@@ -18,8 +18,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
+
 /**
  * User controller handling user-related operations
  * Allows retrieval of user information by ID
@@ -41,11 +45,14 @@ public class UserController {
     /**
      * Get user information by ID
      * Public endpoint to view user details (e.g., rental owner info)
+     * Supports conditional GET: when the client sends validators, they are
+     * checked against updated_at before the user is loaded
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get user by ID", description = "Retrieve user information by user ID. Useful for displaying rental owner details.", tags = {
             "Users" }, security = @SecurityRequirement(name = "JWT"))
     @ApiResponses(value = {
+            @ApiResponse(responseCode = "304", description = "User not modified since the ETag / Last-Modified sent by the client"),
             @ApiResponse(responseCode = "200", description = "User information retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserResponse.class), examples = @ExampleObject(name = "User Details", value = """
                     {
                         "id": 2,
@@ -71,13 +78,27 @@ public class UserController {
                     """))),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<UserResponse> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserResponse> getUserById(@PathVariable Long id, WebRequest webRequest) {
         logger.info("Request to get user with ID: {}", id);
 
         try {
+            if (ConditionalGetSupport.hasValidators(webRequest)) {
+                Optional<LocalDateTime> lastModified = userService.getUserLastModified(id);
+                if (lastModified.isPresent()) {
+                    String etag = ConditionalGetSupport.etag("user", id, lastModified.get());
+                    if (webRequest.checkNotModified(etag, ConditionalGetSupport.toEpochMillis(lastModified.get()))) {
+                        logger.info("User {} not modified", id);
+                        return null;
+                    }
+                }
+            }
+
             UserResponse user = userService.getUserById(id);
             logger.info("Successfully retrieved user: {}", user.getName());
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok()
+                    .eTag(ConditionalGetSupport.etag("user", user.getId(), user.getUpdatedAt()))
+                    .lastModified(ConditionalGetSupport.toEpochMillis(user.getUpdatedAt()))
+                    .body(user);
 
         } catch (RuntimeException e) {
             if (e.getMessage().contains("not found")) {
@@ -0,0 +1,50 @@
+package com.openclassrooms.chatop.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+
+/**
+ * DTO for bulk mark-as-read requests
+ * Without any field, every received message is marked as read
+ */
+public class MarkReadRequest {
+
+    @Schema(description = "Only mark the messages about this rental", example = "1")
+    @Min(value = 1, message = "Rental ID must be greater than 0")
+    @JsonProperty("rental_id")
+    private Long rentalId;
+
+    @Schema(description = "Only mark the messages up to this message ID (the newest message displayed), so messages received meanwhile stay unread", example = "42")
+    @Min(value = 1, message = "Message ID must be greater than 0")
+    @JsonProperty("up_to_id")
+    private Long upToId;
+
+    // Default constructor
+    public MarkReadRequest() {
+    }
+
+    // Constructor with parameters
+    public MarkReadRequest(Long rentalId, Long upToId) {
+        this.rentalId = rentalId;
+        this.upToId = upToId;
+    }
+
+    // Getters and Setters
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    public void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+
+    public Long getUpToId() {
+        return upToId;
+    }
+
+    public void setUpToId(Long upToId) {
+        this.upToId = upToId;
+    }
+}
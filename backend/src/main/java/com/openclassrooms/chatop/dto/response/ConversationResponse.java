@@ -0,0 +1,142 @@
+package com.openclassrooms.chatop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a conversation summary: one line per rental and sender with the last
+ * message
+ * Uses snake_case naming for frontend compatibility
+ */
+public class ConversationResponse {
+
+    @Schema(description = "Unique rental identifier", example = "1")
+    @JsonProperty("rental_id")
+    private Long rentalId;
+
+    @Schema(description = "Name of the rental", example = "Cozy Apartment")
+    @JsonProperty("rental_name")
+    private String rentalName;
+
+    @Schema(description = "Identifier of the user who wrote about the rental", example = "2")
+    @JsonProperty("user_id")
+    private Long userId;
+
+    @Schema(description = "Name of the user who wrote about the rental", example = "Jane Doe")
+    @JsonProperty("user_name")
+    private String userName;
+
+    @Schema(description = "Identifier of the rental owner", example = "1")
+    @JsonProperty("owner_id")
+    private Long ownerId;
+
+    @Schema(description = "Identifier of the last message", example = "42")
+    @JsonProperty("last_message_id")
+    private Long lastMessageId;
+
+    @Schema(description = "Last message, cut to 200 characters", example = "Hello, is it still available?")
+    @JsonProperty("last_message")
+    private String lastMessage;
+
+    @Schema(description = "Creation timestamp of the last message", example = "2023-10-01T12:00:00Z")
+    @JsonProperty("last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @Schema(description = "Number of messages in the conversation", example = "3")
+    @JsonProperty("message_count")
+    private int messageCount;
+
+    // Default constructor
+    public ConversationResponse() {
+    }
+
+    // Constructor used by JPQL projections (see ConversationRepository)
+    public ConversationResponse(Long rentalId, String rentalName, Long userId, String userName, Long ownerId,
+            Long lastMessageId, String lastMessage, LocalDateTime lastMessageAt, int messageCount) {
+        this.rentalId = rentalId;
+        this.rentalName = rentalName;
+        this.userId = userId;
+        this.userName = userName;
+        this.ownerId = ownerId;
+        this.lastMessageId = lastMessageId;
+        this.lastMessage = lastMessage;
+        this.lastMessageAt = lastMessageAt;
+        this.messageCount = messageCount;
+    }
+
+    // Getters and Setters
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    public void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+
+    public String getRentalName() {
+        return rentalName;
+    }
+
+    public void setRentalName(String rentalName) {
+        this.rentalName = rentalName;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+}
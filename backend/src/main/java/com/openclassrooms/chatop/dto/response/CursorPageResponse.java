@@ -0,0 +1,70 @@
+package com.openclassrooms.chatop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO for one page of a keyset-paginated listing
+ * The next cursor is null when the last page has been reached
+ */
+public class CursorPageResponse<T> {
+
+    @Schema(description = "Items of the current page")
+    private List<T> items;
+
+    @Schema(description = "Opaque cursor to pass back to get the next page, null on the last page", example = "MjAyNS0wMS0xNVQxMDozMDowMHw0Mg")
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    @Schema(description = "Whether more items are available after this page", example = "true")
+    @JsonProperty("has_more")
+    private boolean hasMore;
+
+    // Default constructor
+    public CursorPageResponse() {
+    }
+
+    // Constructor with parameters
+    public CursorPageResponse(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorPageResponse{" +
+                "items=" + (items != null ? items.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
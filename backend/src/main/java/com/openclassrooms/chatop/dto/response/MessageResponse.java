@@ -40,6 +40,10 @@ public class MessageResponse {
     @JsonProperty("updated_at")
     private LocalDateTime updatedAt;
 
+    @Schema(description = "Date the rental owner read the message, null while unread", example = "2023-10-02T09:00:00Z")
+    @JsonProperty("read_at")
+    private LocalDateTime readAt;
+
     // Default constructor
     public MessageResponse() {
     }
@@ -53,6 +57,20 @@ public class MessageResponse {
         this.userId = messageEntity.getUser().getId();
         this.createdAt = messageEntity.getCreatedAt();
         this.updatedAt = messageEntity.getUpdatedAt();
+        this.readAt = messageEntity.getReadAt();
+    }
+
+    // Constructor used by JPQL projections (see MessageRepository)
+    public MessageResponse(Long id, String message, Long rentalId, String rentalName,
+            Long userId, LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime readAt) {
+        this.id = id;
+        this.message = message;
+        this.rentalId = rentalId;
+        this.rentalName = rentalName;
+        this.userId = userId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.readAt = readAt;
     }
 
     // Constructor with parameters
@@ -131,6 +149,14 @@ public class MessageResponse {
         this.updatedAt = updatedAt;
     }
 
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+
     @Override
     public String toString() {
         return "MessageResponse{" +
@@ -141,6 +167,7 @@ public class MessageResponse {
                 ", userId=" + userId +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", readAt=" + readAt +
                 '}';
     }
 }
\ No newline at end of file
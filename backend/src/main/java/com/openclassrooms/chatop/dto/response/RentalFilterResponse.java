@@ -0,0 +1,53 @@
+package com.openclassrooms.chatop.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO for the result of a rental range filter
+ * The total counts every match, rentals only holds the first ones
+ */
+public class RentalFilterResponse {
+
+    @Schema(description = "Total number of matching rentals", example = "42")
+    private int total;
+
+    @Schema(description = "First matching rentals, in the requested order")
+    private List<RentalResponse> rentals;
+
+    // Default constructor
+    public RentalFilterResponse() {
+    }
+
+    // Constructor with parameters
+    public RentalFilterResponse(int total, List<RentalResponse> rentals) {
+        this.total = total;
+        this.rentals = rentals;
+    }
+
+    // Getters and Setters
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public List<RentalResponse> getRentals() {
+        return rentals;
+    }
+
+    public void setRentals(List<RentalResponse> rentals) {
+        this.rentals = rentals;
+    }
+
+    @Override
+    public String toString() {
+        return "RentalFilterResponse{" +
+                "total=" + total +
+                ", rentals=" + (rentals != null ? rentals.size() : 0) +
+                '}';
+    }
+}
@@ -61,6 +61,21 @@ public class RentalResponse {
         this.updatedAt = rental.getUpdatedAt();
     }
 
+    // Constructor used by JPQL projections (see RentalRepository)
+    public RentalResponse(Long id, String name, BigDecimal surface, BigDecimal price,
+            String picture, String description, Long ownerId,
+            LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.surface = surface;
+        this.price = price;
+        this.picture = picture;
+        this.description = description;
+        this.ownerId = ownerId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     // Constructor with parameters
     public RentalResponse(Long id, String name, BigDecimal surface, BigDecimal price,
             String picture, String description, Long ownerId, String ownerName,
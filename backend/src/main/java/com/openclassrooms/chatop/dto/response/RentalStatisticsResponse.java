@@ -0,0 +1,166 @@
+package com.openclassrooms.chatop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO for rental market statistics
+ * Medians are estimates with a relative error below 1%
+ */
+public class RentalStatisticsResponse {
+
+    @Schema(description = "Total number of rentals", example = "120")
+    private long count;
+
+    @Schema(description = "Mean price", example = "950.25")
+    @JsonProperty("mean_price")
+    private BigDecimal meanPrice;
+
+    @Schema(description = "Median price (estimate)", example = "900.00")
+    @JsonProperty("median_price")
+    private BigDecimal medianPrice;
+
+    @Schema(description = "Mean price per square meter, over rentals with a surface", example = "18.40")
+    @JsonProperty("mean_price_per_m2")
+    private BigDecimal meanPricePerM2;
+
+    @Schema(description = "Median price per square meter (estimate)", example = "17.90")
+    @JsonProperty("median_price_per_m2")
+    private BigDecimal medianPricePerM2;
+
+    @Schema(description = "Number of rentals per price range")
+    @JsonProperty("price_histogram")
+    private List<HistogramBucket> priceHistogram;
+
+    @Schema(description = "Number of rentals per surface range")
+    @JsonProperty("surface_histogram")
+    private List<HistogramBucket> surfaceHistogram;
+
+    // Default constructor
+    public RentalStatisticsResponse() {
+    }
+
+    // Getters and Setters
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public BigDecimal getMeanPrice() {
+        return meanPrice;
+    }
+
+    public void setMeanPrice(BigDecimal meanPrice) {
+        this.meanPrice = meanPrice;
+    }
+
+    public BigDecimal getMedianPrice() {
+        return medianPrice;
+    }
+
+    public void setMedianPrice(BigDecimal medianPrice) {
+        this.medianPrice = medianPrice;
+    }
+
+    public BigDecimal getMeanPricePerM2() {
+        return meanPricePerM2;
+    }
+
+    public void setMeanPricePerM2(BigDecimal meanPricePerM2) {
+        this.meanPricePerM2 = meanPricePerM2;
+    }
+
+    public BigDecimal getMedianPricePerM2() {
+        return medianPricePerM2;
+    }
+
+    public void setMedianPricePerM2(BigDecimal medianPricePerM2) {
+        this.medianPricePerM2 = medianPricePerM2;
+    }
+
+    public List<HistogramBucket> getPriceHistogram() {
+        return priceHistogram;
+    }
+
+    public void setPriceHistogram(List<HistogramBucket> priceHistogram) {
+        this.priceHistogram = priceHistogram;
+    }
+
+    public List<HistogramBucket> getSurfaceHistogram() {
+        return surfaceHistogram;
+    }
+
+    public void setSurfaceHistogram(List<HistogramBucket> surfaceHistogram) {
+        this.surfaceHistogram = surfaceHistogram;
+    }
+
+    @Override
+    public String toString() {
+        return "RentalStatisticsResponse{" +
+                "count=" + count +
+                ", meanPrice=" + meanPrice +
+                ", medianPrice=" + medianPrice +
+                ", meanPricePerM2=" + meanPricePerM2 +
+                ", medianPricePerM2=" + medianPricePerM2 +
+                '}';
+    }
+
+    /**
+     * One histogram range, lower bound included, upper bound excluded
+     * The last range has no upper bound
+     */
+    public static class HistogramBucket {
+
+        @Schema(description = "Lower bound, included", example = "500")
+        private BigDecimal from;
+
+        @Schema(description = "Upper bound, excluded, null for the last range", example = "750")
+        private BigDecimal to;
+
+        @Schema(description = "Number of rentals in the range", example = "12")
+        private long count;
+
+        // Default constructor
+        public HistogramBucket() {
+        }
+
+        // Constructor with parameters
+        public HistogramBucket(BigDecimal from, BigDecimal to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        // Getters and Setters
+        public BigDecimal getFrom() {
+            return from;
+        }
+
+        public void setFrom(BigDecimal from) {
+            this.from = from;
+        }
+
+        public BigDecimal getTo() {
+            return to;
+        }
+
+        public void setTo(BigDecimal to) {
+            this.to = to;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+}
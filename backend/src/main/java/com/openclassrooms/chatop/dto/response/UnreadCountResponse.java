@@ -0,0 +1,45 @@
+package com.openclassrooms.chatop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO for the unread message counter of the current user
+ */
+public class UnreadCountResponse {
+
+    @Schema(description = "Number of received messages not marked as read yet", example = "3")
+    @JsonProperty("unread_count")
+    private int unreadCount;
+
+    @Schema(description = "Number of messages marked as read by this request (mark-read only)", example = "2")
+    private Integer marked;
+
+    // Default constructor
+    public UnreadCountResponse() {
+    }
+
+    // Constructor with parameters
+    public UnreadCountResponse(int unreadCount, Integer marked) {
+        this.unreadCount = unreadCount;
+        this.marked = marked;
+    }
+
+    // Getters and Setters
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+
+    public Integer getMarked() {
+        return marked;
+    }
+
+    public void setMarked(Integer marked) {
+        this.marked = marked;
+    }
+}
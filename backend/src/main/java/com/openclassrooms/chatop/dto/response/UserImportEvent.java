@@ -0,0 +1,124 @@
+package com.openclassrooms.chatop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO for one line of the bulk user import report (NDJSON)
+ * "error" lines report a rejected row, "progress" lines are written after each
+ * batch and the last line is the "summary"
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportEvent {
+
+    public static final String ERROR = "error";
+    public static final String PROGRESS = "progress";
+    public static final String SUMMARY = "summary";
+
+    @Schema(description = "Event type: error, progress or summary", example = "progress")
+    private String type;
+
+    @Schema(description = "Line of the rejected row in the uploaded file (error only)", example = "42")
+    private Long line;
+
+    @Schema(description = "Email of the rejected row (error only)", example = "john@example.com")
+    private String email;
+
+    @Schema(description = "Reason the row was rejected (error only)", example = "Email already registered")
+    private String error;
+
+    @Schema(description = "Rows read so far", example = "500")
+    private Long processed;
+
+    @Schema(description = "Users created so far", example = "497")
+    private Long imported;
+
+    @Schema(description = "Rows rejected so far", example = "3")
+    private Long failed;
+
+    // Default constructor
+    public UserImportEvent() {
+    }
+
+    /**
+     * Rejected row
+     */
+    public static UserImportEvent error(long line, String email, String error) {
+        UserImportEvent event = new UserImportEvent();
+        event.type = ERROR;
+        event.line = line;
+        event.email = email;
+        event.error = error;
+        return event;
+    }
+
+    /**
+     * Counters after a batch (PROGRESS) or at the end (SUMMARY)
+     */
+    public static UserImportEvent counters(String type, long processed, long imported, long failed) {
+        UserImportEvent event = new UserImportEvent();
+        event.type = type;
+        event.processed = processed;
+        event.imported = imported;
+        event.failed = failed;
+        return event;
+    }
+
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getLine() {
+        return line;
+    }
+
+    public void setLine(Long line) {
+        this.line = line;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Long processed) {
+        this.processed = processed;
+    }
+
+    public Long getImported() {
+        return imported;
+    }
+
+    public void setImported(Long imported) {
+        this.imported = imported;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+}
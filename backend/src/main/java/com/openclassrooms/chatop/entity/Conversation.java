@@ -0,0 +1,126 @@
+package com.openclassrooms.chatop.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Conversation summary: one row per (rental, sender) with the last message
+ * Maintained by MessageService in the same transaction as the message
+ * inserts, so the inbox can list conversations without grouping messages
+ */
+@Entity
+@IdClass(ConversationId.class)
+@Table(name = "conversations", indexes = {
+        @Index(name = "CONVERSATIONS_owner_id_last_message_at_index", columnList = "owner_id, last_message_at, last_message_id"),
+        @Index(name = "CONVERSATIONS_user_id_last_message_at_index", columnList = "user_id, last_message_at, last_message_id")
+})
+public class Conversation {
+
+    /**
+     * Length of the last message snippet
+     */
+    public static final int SNIPPET_LENGTH = 200;
+
+    @Id
+    @Column(name = "rental_id")
+    private Long rentalId;
+
+    // Sender of the messages, the other participant is the rental owner
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_message", nullable = false, length = SNIPPET_LENGTH)
+    private String lastMessage;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "message_count", nullable = false)
+    private int messageCount;
+
+    // Constructors
+    public Conversation() {
+    }
+
+    // Getters and Setters
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    public void setRentalId(Long rentalId) {
+        this.rentalId = rentalId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    /**
+     * Cut a message down to the stored snippet length
+     */
+    public static String snippet(String message) {
+        return message.length() <= SNIPPET_LENGTH ? message : message.substring(0, SNIPPET_LENGTH);
+    }
+
+    @Override
+    public String toString() {
+        return "Conversation{" +
+                "rentalId=" + rentalId +
+                ", userId=" + userId +
+                ", ownerId=" + ownerId +
+                ", lastMessageId=" + lastMessageId +
+                ", messageCount=" + messageCount +
+                '}';
+    }
+}
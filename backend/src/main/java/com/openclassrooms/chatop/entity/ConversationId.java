@@ -0,0 +1,47 @@
+package com.openclassrooms.chatop.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Primary key of a conversation: the rental and the user who wrote about it
+ */
+public class ConversationId implements Serializable {
+
+    private Long rentalId;
+    private Long userId;
+
+    // Constructors
+    public ConversationId() {
+    }
+
+    public ConversationId(Long rentalId, Long userId) {
+        this.rentalId = rentalId;
+        this.userId = userId;
+    }
+
+    // Getters
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    // equals and hashCode
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ConversationId))
+            return false;
+        ConversationId that = (ConversationId) o;
+        return Objects.equals(rentalId, that.rentalId) && Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rentalId, userId);
+    }
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.chatop.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Number of unread messages received by a user
+ * Maintained incrementally by MessageService: incremented when messages are
+ * written, decremented when they are marked as read
+ */
+@Entity
+@Table(name = "inbox_counters")
+public class InboxCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    // Constructors
+    public InboxCounter() {
+    }
+
+    public InboxCounter(Long userId, int unreadCount) {
+        this.userId = userId;
+        this.unreadCount = unreadCount;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+
+    @Override
+    public String toString() {
+        return "InboxCounter{" +
+                "userId=" + userId +
+                ", unreadCount=" + unreadCount +
+                '}';
+    }
+}
@@ -8,11 +8,18 @@ import java.time.LocalDateTime;
  * Links users (senders) to rentals with message message
  */
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "MESSAGES_rental_id_created_at_id_index", columnList = "rental_id, created_at, id"),
+        @Index(name = "MESSAGES_user_id_created_at_id_index", columnList = "user_id, created_at, id")
+})
 public class Message {
 
+    // Pooled table generator (blocks of 50 IDs) instead of IDENTITY, so
+    // inserts can be sent as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "message_id")
+    @TableGenerator(name = "message_id", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "messages", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -33,6 +40,10 @@ public class Message {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Set when the rental owner marks the message as read
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
     // Constructors
     public Message() {
     }
@@ -46,8 +57,13 @@ public class Message {
     // Lifecycle methods
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // Messages written by the ingestion writer keep their submission time
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
     }
 
     @PreUpdate
@@ -88,6 +104,14 @@ public class Message {
         this.updatedAt = updatedAt;
     }
 
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+
     public User getUser() {
         return user;
     }
@@ -5,12 +5,19 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "rentals")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "rental")
+@Table(name = "rentals", indexes = {
+        @Index(name = "RENTALS_created_at_id_index", columnList = "created_at, id"),
+        @Index(name = "RENTALS_owner_id_index", columnList = "owner_id")
+})
 public class Rental {
 
     @Id
@@ -46,6 +53,11 @@ public class Rental {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Incremented by each update, orders the RentalChangedEvents of a rental
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Relationships
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
@@ -141,6 +153,14 @@ public class Rental {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public User getOwner() {
         return owner;
     }
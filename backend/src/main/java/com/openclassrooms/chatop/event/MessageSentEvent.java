@@ -0,0 +1,39 @@
+package com.openclassrooms.chatop.event;
+
+import com.openclassrooms.chatop.dto.response.MessageResponse;
+
+/**
+ * Application event published by MessageService for each written message
+ * Listeners pushing messages to clients should use
+ * {@code @TransactionalEventListener} so they only see committed messages
+ */
+public class MessageSentEvent {
+
+    private final MessageResponse message;
+    private final Long ownerId;
+
+    public MessageSentEvent(MessageResponse message, Long ownerId) {
+        this.message = message;
+        this.ownerId = ownerId;
+    }
+
+    public MessageResponse getMessage() {
+        return message;
+    }
+
+    /**
+     * Owner of the rental, i.e. the recipient of the message
+     */
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageSentEvent{" +
+                "messageId=" + message.getId() +
+                ", rentalId=" + message.getRentalId() +
+                ", ownerId=" + ownerId +
+                '}';
+    }
+}
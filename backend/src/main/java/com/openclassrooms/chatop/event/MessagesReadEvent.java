@@ -0,0 +1,54 @@
+package com.openclassrooms.chatop.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Application event published by MessageService when a rental owner marks
+ * received messages as read
+ * Carries the criteria of the bulk update, not the updated messages
+ */
+public class MessagesReadEvent {
+
+    private final Long ownerId;
+    private final Long rentalId;
+    private final Long upToId;
+    private final LocalDateTime readAt;
+
+    public MessagesReadEvent(Long ownerId, Long rentalId, Long upToId, LocalDateTime readAt) {
+        this.ownerId = ownerId;
+        this.rentalId = rentalId;
+        this.upToId = upToId;
+        this.readAt = readAt;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * Only the messages about this rental, all rentals when null
+     */
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    /**
+     * Only the messages up to this ID, all messages when null
+     */
+    public Long getUpToId() {
+        return upToId;
+    }
+
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    @Override
+    public String toString() {
+        return "MessagesReadEvent{" +
+                "ownerId=" + ownerId +
+                ", rentalId=" + rentalId +
+                ", upToId=" + upToId +
+                '}';
+    }
+}
@@ -0,0 +1,57 @@
+package com.openclassrooms.chatop.event;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+
+/**
+ * Application event published by RentalService when a rental is created or
+ * updated
+ * Listeners keeping derived read models in sync should use
+ * {@code @TransactionalEventListener} so they only see committed data.
+ * After-commit listeners of concurrent transactions may run in any order:
+ * the rental version (optimistic lock, so strictly increasing in commit
+ * order) tells which state is the latest.
+ */
+public class RentalChangedEvent {
+
+    private final RentalResponse rental;
+    private final long version;
+    private final boolean created;
+
+    public RentalChangedEvent(RentalResponse rental, long version, boolean created) {
+        this.rental = rental;
+        this.version = version;
+        this.created = created;
+    }
+
+    public RentalResponse getRental() {
+        return rental;
+    }
+
+    /**
+     * Version of the rental once the change is committed
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * Check if the change is newer than the version already applied by a
+     * listener (null when the listener does not know the rental yet)
+     */
+    public boolean isNewerThan(Long appliedVersion) {
+        return appliedVersion == null || version > appliedVersion;
+    }
+
+    @Override
+    public String toString() {
+        return "RentalChangedEvent{" +
+                "rentalId=" + rental.getId() +
+                ", version=" + version +
+                ", created=" + created +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.chatop.event;
+
+/**
+ * Application event published by TokenVersionService when every token of a
+ * user is revoked (logout)
+ */
+public class TokensRevokedEvent {
+
+    private final Long userId;
+    private final int tokenVersion;
+
+    public TokensRevokedEvent(Long userId, int tokenVersion) {
+        this.userId = userId;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * First token version still valid
+     */
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    @Override
+    public String toString() {
+        return "TokensRevokedEvent{" +
+                "userId=" + userId +
+                ", tokenVersion=" + tokenVersion +
+                '}';
+    }
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.chatop.exceptions;
+
+/**
+ * Thrown when an uploaded import file cannot be read at all (CSV header
+ * without the required columns), before any row is imported
+ * Answered with 400 Bad Request
+ */
+public class InvalidImportFileException extends RuntimeException {
+
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.openclassrooms.chatop.exceptions;
+
+/**
+ * Thrown when the message ingestion queue is full
+ * Answered with 429 Too Many Requests and a Retry-After header
+ */
+public class MessageQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public MessageQueueFullException(long retryAfterSeconds) {
+        super("Message queue is full, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
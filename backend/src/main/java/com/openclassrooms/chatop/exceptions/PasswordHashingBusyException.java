@@ -0,0 +1,19 @@
+package com.openclassrooms.chatop.exceptions;
+
+/**
+ * Thrown when the password hashing pool is saturated
+ * Answered with 503 Service Unavailable and a Retry-After header
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Authentication service is busy, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -3,6 +3,7 @@ package com.openclassrooms.chatop.exceptions;
 import com.openclassrooms.chatop.dto.response.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -38,6 +39,32 @@ public class SimpleExceptionHandler {
         return ResponseEntity.status(status).body(error);
     }
 
+    /**
+     * Handle a full message ingestion queue (backpressure)
+     */
+    @ExceptionHandler(MessageQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleMessageQueueFull(MessageQueueFullException e) {
+        logger.warn("Message rejected: {}", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse(e.getMessage(), "MESSAGE_429");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+
+    /**
+     * Handle a saturated password hashing pool (login and registration)
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ErrorResponse> handlePasswordHashingBusy(PasswordHashingBusyException e) {
+        logger.warn("Authentication rejected: {}", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse(e.getMessage(), "AUTH_503");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+
     /**
      * Handle validation errors (Bean Validation)
      */
@@ -0,0 +1,22 @@
+package com.openclassrooms.chatop.ingestion;
+
+/**
+ * When POST /api/messages answers (messages.ingestion.mode)
+ */
+public enum IngestionMode {
+
+    /**
+     * Insert on the request thread, one row per request
+     */
+    SYNC,
+
+    /**
+     * Answer as soon as the message is queued, a crash can lose queued messages
+     */
+    ENQUEUE,
+
+    /**
+     * Queue the message and wait until the batch holding it is committed
+     */
+    COMMIT
+}
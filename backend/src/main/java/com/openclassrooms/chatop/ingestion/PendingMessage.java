@@ -0,0 +1,56 @@
+package com.openclassrooms.chatop.ingestion;
+
+import java.time.LocalDateTime;
+
+/**
+ * Validated and authorized message waiting to be written
+ * Only holds IDs so the writer does not need to load the user or the rental
+ */
+public class PendingMessage {
+
+    private final Long userId;
+    private final Long rentalId;
+    private final String rentalName;
+    private final Long ownerId;
+    private final String message;
+    private final LocalDateTime createdAt;
+
+    public PendingMessage(Long userId, Long rentalId, String rentalName, Long ownerId, String message,
+            LocalDateTime createdAt) {
+        this.userId = userId;
+        this.rentalId = rentalId;
+        this.rentalName = rentalName;
+        this.ownerId = ownerId;
+        this.message = message;
+        this.createdAt = createdAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    public String getRentalName() {
+        return rentalName;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingMessage{userId=" + userId + ", rentalId=" + rentalId + ", createdAt=" + createdAt + '}';
+    }
+}
@@ -0,0 +1,114 @@
+package com.openclassrooms.chatop.repository;
+
+import com.openclassrooms.chatop.dto.response.ConversationResponse;
+import com.openclassrooms.chatop.entity.Conversation;
+import com.openclassrooms.chatop.entity.ConversationId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+/**
+ * Repository interface for Conversation entity
+ * Summaries are only written through the upsert below, in the transaction
+ * inserting the messages
+ */
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, ConversationId> {
+
+    /**
+     * Add messages to a conversation, creating it on first message
+     * The last message only moves forward in time, so batches committed out of
+     * order never replace a newer message with an older one. last_message_at
+     * is assigned last since MySQL evaluates the assignments in order.
+     *
+     * @param count Number of messages added
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "conversations"))
+    @Query(value = "INSERT INTO conversations (rental_id, user_id, owner_id, last_message_id, last_message, "
+            + "last_message_at, message_count) "
+            + "VALUES (:rentalId, :userId, :ownerId, :lastMessageId, :lastMessage, :lastMessageAt, :count) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "last_message_id = CASE WHEN :lastMessageAt >= last_message_at THEN :lastMessageId ELSE last_message_id END, "
+            + "last_message = CASE WHEN :lastMessageAt >= last_message_at THEN :lastMessage ELSE last_message END, "
+            + "message_count = message_count + :count, "
+            + "last_message_at = CASE WHEN :lastMessageAt >= last_message_at THEN :lastMessageAt ELSE last_message_at END",
+            nativeQuery = true)
+    void addMessages(@Param("rentalId") Long rentalId, @Param("userId") Long userId, @Param("ownerId") Long ownerId,
+            @Param("lastMessageId") Long lastMessageId, @Param("lastMessage") String lastMessage,
+            @Param("lastMessageAt") LocalDateTime lastMessageAt, @Param("count") int count);
+
+    /**
+     * Columns of a conversation listing branch, with the rental and sender names
+     */
+    String LISTING_COLUMNS = "SELECT c.rentalId AS rentalId, r.name AS rentalName, c.userId AS userId, "
+            + "u.name AS userName, c.ownerId AS ownerId, c.lastMessageId AS lastMessageId, "
+            + "c.lastMessage AS lastMessage, c.lastMessageAt AS lastMessageAt, c.messageCount AS messageCount "
+            + "FROM Conversation c JOIN Rental r ON r.id = c.rentalId JOIN User u ON u.id = c.userId ";
+
+    /**
+     * Branch of the conversations started by the user, read from
+     * CONVERSATIONS_user_id_last_message_at_index
+     */
+    String STARTED_BRANCH = LISTING_COLUMNS + "WHERE c.userId = :userId ";
+
+    /**
+     * Branch of the conversations about the user's rentals, read from
+     * CONVERSATIONS_owner_id_last_message_at_index
+     */
+    String RECEIVED_BRANCH = LISTING_COLUMNS + "WHERE c.ownerId = :userId ";
+
+    /**
+     * Keyset condition on (last_message_at, last_message_id) for the following
+     * pages, the last message ID being unique per conversation
+     */
+    String AFTER_CURSOR = "AND (c.lastMessageAt < :lastMessageAt "
+            + "OR (c.lastMessageAt = :lastMessageAt AND c.lastMessageId < :lastMessageId)) ";
+
+    String BRANCH_LATEST_FIRST = "ORDER BY c.lastMessageAt DESC, c.lastMessageId DESC LIMIT :limit";
+
+    /**
+     * Merges both branches, most recently active conversation first
+     */
+    String LISTING_SELECT = "SELECT new com.openclassrooms.chatop.dto.response.ConversationResponse("
+            + "x.rentalId, x.rentalName, x.userId, x.userName, x.ownerId, x.lastMessageId, x.lastMessage, "
+            + "x.lastMessageAt, x.messageCount) FROM ";
+
+    String LISTING_LATEST_FIRST = " x ORDER BY x.lastMessageAt DESC, x.lastMessageId DESC LIMIT :limit";
+
+    /**
+     * First page of the conversations of a user (as sender or rental owner)
+     *
+     * @param userId The user's ID
+     * @param limit  Maximum number of conversations to return
+     * @return The most recently active conversations
+     */
+    @Query(LISTING_SELECT + "((" + STARTED_BRANCH + BRANCH_LATEST_FIRST + ") UNION ALL ("
+            + RECEIVED_BRANCH + BRANCH_LATEST_FIRST + "))" + LISTING_LATEST_FIRST)
+    List<ConversationResponse> findFirstPageByUser(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Next page of the conversations of a user
+     *
+     * @param userId        The user's ID
+     * @param lastMessageAt Last message date of the last conversation of the previous page
+     * @param lastMessageId Last message ID of the last conversation of the previous page
+     * @param limit         Maximum number of conversations to return
+     * @return The conversations following the cursor
+     */
+    @Query(LISTING_SELECT + "((" + STARTED_BRANCH + AFTER_CURSOR + BRANCH_LATEST_FIRST + ") UNION ALL ("
+            + RECEIVED_BRANCH + AFTER_CURSOR + BRANCH_LATEST_FIRST + "))" + LISTING_LATEST_FIRST)
+    List<ConversationResponse> findPageByUserAfter(@Param("userId") Long userId,
+            @Param("lastMessageAt") LocalDateTime lastMessageAt, @Param("lastMessageId") Long lastMessageId,
+            @Param("limit") int limit);
+}
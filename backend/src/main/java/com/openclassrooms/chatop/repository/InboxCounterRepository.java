@@ -0,0 +1,60 @@
+package com.openclassrooms.chatop.repository;
+
+import com.openclassrooms.chatop.entity.InboxCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+/**
+ * Repository interface for InboxCounter entity
+ * Counters are only changed through single-statement updates, never loaded
+ * and saved, so concurrent updates cannot overwrite each other
+ */
+@Repository
+public interface InboxCounterRepository extends JpaRepository<InboxCounter, Long> {
+
+    /**
+     * Add unread messages to a user's counter, creating it on first use
+     * The native spaces hint tells Hibernate only inbox_counters is touched,
+     * otherwise a native update invalidates the whole second-level cache
+     *
+     * @param userId The recipient's ID
+     * @param count  Number of new unread messages
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "inbox_counters"))
+    @Query(value = "INSERT INTO inbox_counters (user_id, unread_count) VALUES (:userId, :count) "
+            + "ON DUPLICATE KEY UPDATE unread_count = unread_count + :count", nativeQuery = true)
+    void increment(@Param("userId") Long userId, @Param("count") int count);
+
+    /**
+     * Remove messages marked as read from a user's counter, never below zero
+     *
+     * @param userId The user's ID
+     * @param count  Number of messages marked as read
+     */
+    @Modifying
+    @Query("UPDATE InboxCounter c SET c.unreadCount = "
+            + "CASE WHEN c.unreadCount > :count THEN c.unreadCount - :count ELSE 0 END "
+            + "WHERE c.userId = :userId")
+    void decrement(@Param("userId") Long userId, @Param("count") int count);
+
+    /**
+     * Get the unread counter of a user by email in a single primary key lookup
+     * Empty when the user never received a message
+     *
+     * @param email The user's email
+     * @return Optional<Integer> The number of unread messages
+     */
+    @Query("SELECT c.unreadCount FROM InboxCounter c JOIN User u ON u.id = c.userId WHERE u.email = :email")
+    Optional<Integer> findUnreadCountByEmail(@Param("email") String email);
+}
@@ -1,14 +1,23 @@
 package com.openclassrooms.chatop.repository;
 
+import com.openclassrooms.chatop.archive.ArchivedMessage;
+import com.openclassrooms.chatop.dto.response.MessageResponse;
 import com.openclassrooms.chatop.entity.Message;
 import com.openclassrooms.chatop.entity.Rental;
 import com.openclassrooms.chatop.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Message entity
@@ -22,17 +31,267 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      */
     List<Message> findByUser(User user);
 
+    /**
+     * JPQL select building MessageResponse DTOs directly from the messages columns
+     * joined with the rental name, without loading any entity
+     */
+    String RESPONSE_SELECT = "SELECT new com.openclassrooms.chatop.dto.response.MessageResponse("
+            + "m.id, m.message, r.id, r.name, m.user.id, m.createdAt, m.updatedAt, m.readAt) "
+            + "FROM Message m JOIN m.rental r ";
+
     /**
      * Find all messages about a specific rental
      */
-    @Query("SELECT m FROM Message m WHERE m.rental = :rental ORDER BY m.createdAt DESC")
-    List<Message> findByRental(@Param("rental") Rental rental);
+    @Query(RESPONSE_SELECT + "WHERE r = :rental ORDER BY m.createdAt DESC")
+    List<MessageResponse> findByRental(@Param("rental") Rental rental);
+
+    /**
+     * Visibility of a rental's messages: the authenticated user owns the rental
+     * or sent a message about it, both checked on user IDs (owner_id and
+     * user_id indexes), without joining the users table
+     * Lets a read check access in the statement that returns the data
+     */
+    String VIEWER_OF_RENTAL = "(r.owner.id = :userId OR EXISTS (SELECT s.id FROM Message s "
+            + "WHERE s.rental = r AND s.user.id = :userId)) ";
+
+    /**
+     * Find all messages about a rental, only if the user may read them
+     * An empty result means no message, no access or no rental
+     *
+     * @param rentalId The rental ID
+     * @param userId   ID of the authenticated user
+     * @return The messages about the rental, newest first
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.id = :rentalId AND " + VIEWER_OF_RENTAL + "ORDER BY m.createdAt DESC")
+    List<MessageResponse> findViewableByRental(@Param("rentalId") Long rentalId, @Param("userId") Long userId);
+
+    /**
+     * Columns of an inbox branch, selected into a derived table
+     */
+    String INBOX_COLUMNS = "SELECT m.id AS id, m.message AS message, r.id AS rentalId, r.name AS rentalName, "
+            + "m.user.id AS userId, m.createdAt AS createdAt, m.updatedAt AS updatedAt, m.readAt AS readAt "
+            + "FROM Message m JOIN m.rental r ";
+
+    /**
+     * Inbox branch of the messages sent by the user, read from
+     * MESSAGES_user_id_created_at_id_index
+     */
+    String SENT_BRANCH = INBOX_COLUMNS + "WHERE m.user = :user ";
+
+    /**
+     * Inbox branch of the messages received about the user's rentals, read from
+     * RENTALS_owner_id_index then MESSAGES_rental_id_created_at_id_index
+     * Messages sent by the user are excluded, they belong to the other branch
+     */
+    String RECEIVED_BRANCH = INBOX_COLUMNS + "WHERE r.owner = :user AND m.user <> :user ";
+
+    /**
+     * Keyset condition on (created_at, id) for the following pages
+     */
+    String AFTER_CURSOR = "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) ";
+
+    /**
+     * Order and size of each branch of a paginated inbox
+     */
+    String BRANCH_NEWEST_FIRST = "ORDER BY m.createdAt DESC, m.id DESC LIMIT :limit";
+
+    /**
+     * Merges the two inbox branches, newest first
+     * A single "user = :user OR owner = :user" predicate spans two tables, so no
+     * index can serve it and MySQL scans every message. Each branch of the
+     * UNION ALL has its own index instead.
+     */
+    String INBOX_SELECT = "SELECT new com.openclassrooms.chatop.dto.response.MessageResponse("
+            + "x.id, x.message, x.rentalId, x.rentalName, x.userId, x.createdAt, x.updatedAt, x.readAt) FROM ";
+
+    String INBOX_NEWEST_FIRST = " x ORDER BY x.createdAt DESC, x.id DESC";
 
     /**
      * Find all messages where a user is involved (user or rental owner)
      */
-    @Query("SELECT m FROM Message m WHERE m.user = :user OR m.rental.owner = :user ORDER BY m.createdAt DESC")
-    List<Message> findByUserInvolvement(@Param("user") User user);
+    @Query(INBOX_SELECT + "(" + SENT_BRANCH + "UNION ALL " + RECEIVED_BRANCH + ")" + INBOX_NEWEST_FIRST)
+    List<MessageResponse> findByUserInvolvement(@Param("user") User user);
+
+    /**
+     * First page of the messages about a rental, newest first
+     * Keyset pagination on (created_at, id), backed by
+     * MESSAGES_rental_id_created_at_id_index
+     *
+     * @param rental The rental
+     * @param limit  Maximum number of messages to return
+     * @return The newest messages about the rental
+     */
+    @Query(RESPONSE_SELECT + "WHERE r = :rental ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findFirstPageByRental(@Param("rental") Rental rental, Limit limit);
+
+    /**
+     * Next page of the messages about a rental, newest first
+     *
+     * @param rental    The rental
+     * @param createdAt Creation date of the last message of the previous page
+     * @param id        ID of the last message of the previous page
+     * @param limit     Maximum number of messages to return
+     * @return The messages following the cursor
+     */
+    @Query(RESPONSE_SELECT + "WHERE r = :rental "
+            + "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) "
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findPageByRentalAfter(@Param("rental") Rental rental,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    /**
+     * First page of the messages about a rental, only if the user may read them
+     *
+     * @param rentalId The rental ID
+     * @param userId   ID of the authenticated user
+     * @param limit    Maximum number of messages to return
+     * @return The newest messages about the rental, empty without access
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.id = :rentalId AND " + VIEWER_OF_RENTAL
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findFirstViewablePageByRental(@Param("rentalId") Long rentalId,
+            @Param("userId") Long userId, Limit limit);
+
+    /**
+     * Next page of the messages about a rental, only if the user may read them
+     *
+     * @param rentalId  The rental ID
+     * @param userId    ID of the authenticated user
+     * @param createdAt Creation date of the last message of the previous page
+     * @param id        ID of the last message of the previous page
+     * @param limit     Maximum number of messages to return
+     * @return The messages following the cursor, empty without access
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.id = :rentalId AND " + VIEWER_OF_RENTAL + AFTER_CURSOR
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageResponse> findViewablePageByRentalAfter(@Param("rentalId") Long rentalId,
+            @Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+            Limit limit);
+
+    /**
+     * First page of the messages where a user is involved, newest first
+     * Each branch only reads its first "limit" rows from its index before the
+     * merge
+     *
+     * @param user  The user
+     * @param limit Maximum number of messages to return
+     * @return The newest messages of the user's inbox
+     */
+    @Query(INBOX_SELECT + "((" + SENT_BRANCH + BRANCH_NEWEST_FIRST + ") UNION ALL ("
+            + RECEIVED_BRANCH + BRANCH_NEWEST_FIRST + "))" + INBOX_NEWEST_FIRST + " LIMIT :limit")
+    List<MessageResponse> findFirstPageByUserInvolvement(@Param("user") User user, @Param("limit") int limit);
+
+    /**
+     * Next page of the messages where a user is involved, newest first
+     *
+     * @param user      The user
+     * @param createdAt Creation date of the last message of the previous page
+     * @param id        ID of the last message of the previous page
+     * @param limit     Maximum number of messages to return
+     * @return The messages following the cursor
+     */
+    @Query(INBOX_SELECT + "((" + SENT_BRANCH + AFTER_CURSOR + BRANCH_NEWEST_FIRST + ") UNION ALL ("
+            + RECEIVED_BRANCH + AFTER_CURSOR + BRANCH_NEWEST_FIRST + "))" + INBOX_NEWEST_FIRST + " LIMIT :limit")
+    List<MessageResponse> findPageByUserInvolvementAfter(@Param("user") User user,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, @Param("limit") int limit);
+
+    /**
+     * Aggregate describing the current state of a message listing
+     * Messages are added, archived and marked as read once: the count, last ID,
+     * last update date and last read date together change whenever the listing
+     * does
+     */
+    interface ListingVersion {
+        long getCount();
+
+        Long getLastId();
+
+        LocalDateTime getLastUpdatedAt();
+
+        LocalDateTime getLastReadAt();
+    }
+
+    /**
+     * Get the version of the messages where a user is involved, without loading
+     * them
+     * Used to answer conditional GET requests on the inbox
+     */
+    @Query("SELECT COUNT(x.id) AS count, MAX(x.id) AS lastId, MAX(x.updatedAt) AS lastUpdatedAt, "
+            + "MAX(x.readAt) AS lastReadAt "
+            + "FROM (" + SENT_BRANCH + "UNION ALL " + RECEIVED_BRANCH + ") x")
+    ListingVersion findVersionByUserInvolvement(@Param("user") User user);
+
+    /**
+     * Find a message, only if the user sent it or owns its rental
+     * Access is checked in the same statement, no entity is loaded
+     *
+     * @param id     The message ID
+     * @param userId ID of the authenticated user
+     * @return The message, empty when it does not exist or is not visible
+     */
+    @Query(RESPONSE_SELECT + "WHERE m.id = :id AND (m.user.id = :userId OR r.owner.id = :userId)")
+    Optional<MessageResponse> findViewableById(@Param("id") Long id, @Param("userId") Long userId);
+
+    /**
+     * Mark the unread messages received by a rental owner as read, in a single
+     * statement whatever the number of messages
+     *
+     * @param owner    The rental owner
+     * @param rentalId Only the messages about this rental, all rentals when null
+     * @param upToId   Only the messages up to this ID, all messages when null
+     * @param readAt   Read date
+     * @return The number of messages marked as read
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.readAt = :readAt "
+            + "WHERE m.readAt IS NULL AND m.user <> :owner "
+            + "AND m.rental IN (SELECT r FROM Rental r WHERE r.owner = :owner) "
+            + "AND (:rentalId IS NULL OR m.rental.id = :rentalId) "
+            + "AND (:upToId IS NULL OR m.id <= :upToId)")
+    int markReceivedAsRead(@Param("owner") User owner, @Param("rentalId") Long rentalId,
+            @Param("upToId") Long upToId, @Param("readAt") LocalDateTime readAt);
+
+    /**
+     * Oldest messages created before a date, for the archiver
+     *
+     * @param before Only messages created before this date
+     * @param limit  Maximum number of messages to return
+     * @return Messages with their rental owner, sorted by ID
+     */
+    @Query("SELECT new com.openclassrooms.chatop.archive.ArchivedMessage(m.id, r.id, m.user.id, r.owner.id, "
+            + "m.message, m.createdAt, m.updatedAt, m.readAt) "
+            + "FROM Message m JOIN m.rental r WHERE m.createdAt < :before ORDER BY m.id")
+    List<ArchivedMessage> findArchivable(@Param("before") LocalDateTime before, Limit limit);
+
+    /**
+     * Read state of a message about to be archived
+     */
+    interface ReadState {
+        Long getId();
+
+        LocalDateTime getReadAt();
+    }
+
+    /**
+     * Lock the messages of an archived batch and read their current read date,
+     * in the transaction deleting them
+     * A message marked as read since the batch was read no longer matches its
+     * archived copy
+     *
+     * @return The messages still in the table
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m.id AS id, m.readAt AS readAt FROM Message m WHERE m.id IN :ids")
+    List<ReadState> lockReadStates(@Param("ids") List<Long> ids);
+
+    /**
+     * Delete archived messages in a single statement
+     *
+     * @return The number of deleted messages
+     */
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
 
     /**
      * Check if a user has sent any messages about a specific rental
@@ -1,16 +1,40 @@
 package com.openclassrooms.chatop.repository;
 
+import com.openclassrooms.chatop.dto.response.RentalResponse;
 import com.openclassrooms.chatop.entity.Rental;
 import com.openclassrooms.chatop.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface RentalRepository extends JpaRepository<Rental, Long> {
 
+    /**
+     * Find a rental with its owner in a single query
+     * Used by the write paths that check ownership, so reading the owner's email
+     * does not trigger a lazy load
+     *
+     * @param id The rental's ID
+     * @return Optional<Rental> The rental and its owner if found
+     */
+    @EntityGraph(attributePaths = "owner")
+    Optional<Rental> findWithOwnerById(Long id);
+
     /**
      * Find a rental by its ID
      * Used to display "My Rentals"
@@ -30,4 +54,126 @@ public interface RentalRepository extends JpaRepository<Rental, Long> {
      * @return List of the owner's rentals
      */
     List<Rental> findByOwnerId(Long ownerId);
-}
\ No newline at end of file
+
+    /**
+     * JPQL select building RentalResponse DTOs directly from the rentals columns
+     * No entity is loaded in the persistence context and the owner is read from
+     * the owner_id foreign key, without joining users
+     */
+    String RESPONSE_SELECT = "SELECT new com.openclassrooms.chatop.dto.response.RentalResponse("
+            + "r.id, r.name, r.surface, r.price, r.picture, r.description, r.owner.id, r.createdAt, r.updatedAt) "
+            + "FROM Rental r ";
+
+    /**
+     * Get the whole rental catalogue as response DTOs
+     *
+     * @return All rentals
+     */
+    @Query(RESPONSE_SELECT)
+    List<RentalResponse> findAllResponses();
+
+    /**
+     * Get a single rental as response DTO
+     *
+     * @param id The rental ID
+     * @return The rental if found
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.id = :id")
+    Optional<RentalResponse> findResponseById(@Param("id") Long id);
+
+    /**
+     * Get all rentals of an owner as response DTOs
+     *
+     * @param ownerId The owner's ID
+     * @return List of the owner's rentals
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.owner.id = :ownerId")
+    List<RentalResponse> findResponsesByOwnerId(@Param("ownerId") Long ownerId);
+
+    /**
+     * Get some rentals as response DTOs
+     *
+     * @param ids The rental IDs
+     * @return The rentals found, in no particular order
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.id IN :ids")
+    List<RentalResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * First page of the rental catalogue, newest first
+     * Keyset pagination on (created_at, id), backed by RENTALS_created_at_id_index
+     *
+     * @param limit Maximum number of rentals to return
+     * @return The newest rentals
+     */
+    @Query(RESPONSE_SELECT + "ORDER BY r.createdAt DESC, r.id DESC")
+    List<RentalResponse> findFirstPageDesc(Limit limit);
+
+    /**
+     * Next page of the rental catalogue, newest first
+     * Only rentals strictly older than the cursor position are returned, so rows
+     * inserted after the first page was served never shift the following pages
+     *
+     * @param createdAt Creation date of the last rental of the previous page
+     * @param id        ID of the last rental of the previous page
+     * @param limit     Maximum number of rentals to return
+     * @return The rentals following the cursor
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id) "
+            + "ORDER BY r.createdAt DESC, r.id DESC")
+    List<RentalResponse> findPageAfterDesc(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+            Limit limit);
+
+    /**
+     * First page of the rental catalogue, oldest first
+     *
+     * @param limit Maximum number of rentals to return
+     * @return The oldest rentals
+     */
+    @Query(RESPONSE_SELECT + "ORDER BY r.createdAt ASC, r.id ASC")
+    List<RentalResponse> findFirstPageAsc(Limit limit);
+
+    /**
+     * Next page of the rental catalogue, oldest first
+     *
+     * @param createdAt Creation date of the last rental of the previous page
+     * @param id        ID of the last rental of the previous page
+     * @param limit     Maximum number of rentals to return
+     * @return The rentals following the cursor
+     */
+    @Query(RESPONSE_SELECT + "WHERE r.createdAt > :createdAt OR (r.createdAt = :createdAt AND r.id > :id) "
+            + "ORDER BY r.createdAt ASC, r.id ASC")
+    List<RentalResponse> findPageAfterAsc(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+            Limit limit);
+
+    /**
+     * Version of a rental, see RentalChangedEvent
+     */
+    interface RentalVersion {
+        Long getId();
+
+        Long getVersion();
+    }
+
+    /**
+     * Get the version of every rental
+     * Read before the rentals themselves when rebuilding a read model: the
+     * event of a change committed in between is applied again, not skipped
+     *
+     * @return The ID and version of all rentals
+     */
+    @Query("SELECT r.id AS id, r.version AS version FROM Rental r")
+    List<RentalVersion> findAllVersions();
+
+    /**
+     * Stream the whole rental catalogue row by row
+     * A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream the result
+     * set instead of buffering it, so memory stays constant whatever the number
+     * of rentals. Must be consumed inside a transaction and closed after use.
+     *
+     * @return Stream of all rentals, ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "-2147483648"))
+    @Query(RESPONSE_SELECT + "ORDER BY r.id")
+    Stream<RentalResponse> streamAll();
+}
@@ -3,23 +3,69 @@ package com.openclassrooms.chatop.repository;
 import com.openclassrooms.chatop.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    /**
+     * Query cache region of findByEmail results (sized in hibernate-cache.conf)
+     */
+    String BY_EMAIL_QUERY_REGION = "user-by-email";
+
     /**
      * Find a user by their email
-     * Used for authentication
+     * Used for authentication, the result is kept in the query cache
      *
      * @param email The user's email
      * @return Optional<User> The user if found
      */
+    @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = BY_EMAIL_QUERY_REGION) })
     Optional<User> findByEmail(String email);
 
+    /**
+     * Get the last update date of a user without loading the entity
+     * Used to answer conditional GET requests
+     *
+     * @param id The user's ID
+     * @return Optional<LocalDateTime> The last update date if the user exists
+     */
+    @Query("SELECT u.updatedAt FROM User u WHERE u.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
+    /**
+     * Get the token version of a user without loading the entity
+     * Used to check that a stateless token has not been revoked
+     *
+     * @param id The user's ID
+     * @return Optional<Integer> The token version if the user exists
+     */
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
+
+    /**
+     * Find which of the given emails are already registered, in one query
+     * Used by the bulk user import
+     *
+     * @param emails The emails to check
+     * @return The registered emails among them
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     /**
      * Check if an email already exists
      *
@@ -0,0 +1,249 @@
+package com.openclassrooms.chatop.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe in-memory inverted index over documents identified by a long ID
+ * Documents have a title (boosted) and a body. Queries return the best
+ * matching documents ranked with BM25. Re-indexing a document replaces its
+ * previous terms, so the index can be maintained incrementally.
+ */
+public class InvertedIndex {
+
+    // Title terms count as if they appeared this many times
+    private static final int TITLE_BOOST = 2;
+
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final TextAnalyzer analyzer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (document ID -> term frequency)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    // document ID -> (term -> term frequency), needed to remove a document
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    // document ID -> number of terms, duplicates included
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    private long totalLength;
+
+    public InvertedIndex(TextAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Add or replace a document
+     */
+    public void index(long documentId, String title, String body) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : analyzer.analyze(title)) {
+            frequencies.merge(term, TITLE_BOOST, Integer::sum);
+        }
+        for (String term : analyzer.analyze(body)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(documentId);
+            documents.put(documentId, frequencies);
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                        .put(documentId, entry.getValue());
+                length += entry.getValue();
+            }
+            lengths.put(documentId, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a document, if present
+     */
+    public void remove(long documentId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(documentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long documentId) {
+        Map<String, Integer> previous = documents.remove(documentId);
+        if (previous == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : previous.entrySet()) {
+            Map<Long, Integer> documentIds = postings.get(entry.getKey());
+            documentIds.remove(documentId);
+            if (documentIds.isEmpty()) {
+                postings.remove(entry.getKey());
+            }
+        }
+        totalLength -= lengths.remove(documentId);
+    }
+
+    /**
+     * Remove every document
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            lengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents matching any query term, best first
+     *
+     * @param query Free text query, analyzed like the documents
+     * @param limit Maximum number of hits to return
+     * @return Hits ordered by decreasing BM25 score
+     */
+    public List<Hit> search(String query, int limit) {
+        // A repeated query term does not count twice
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(analyzer.analyze(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, Integer> documentIds = postings.get(term);
+                if (documentIds == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - documentIds.size() + 0.5) / (documentIds.size() + 0.5));
+                for (Map.Entry<Long, Integer> posting : documentIds.entrySet()) {
+                    int frequency = posting.getValue();
+                    int length = lengths.get(posting.getKey());
+                    double score = idf * frequency * (K1 + 1)
+                            / (frequency + K1 * (1 - B + B * length / averageLength));
+                    scores.merge(posting.getKey(), score, Double::sum);
+                }
+            }
+
+            // Keep the best hits in a bounded min-heap
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1);
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                best.offer(new Hit(entry.getKey(), entry.getValue()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort((a, b) -> b.compareTo(a));
+            return hits;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct terms
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough estimate of the heap used by the index, in bytes
+     * Counts the map entries, boxed keys and values and the term strings of a
+     * 64-bit JVM with compressed pointers; walks the whole index, so meant for
+     * metrics rather than hot paths
+     */
+    public long estimateMemoryBytes() {
+        // HashMap node + boxed Long key + boxed Integer value
+        final long entryBytes = 32 + 16 + 16;
+        // HashMap object + table, per map
+        final long mapBytes = 64;
+
+        lock.readLock().lock();
+        try {
+            long bytes = mapBytes * 3;
+            for (Map.Entry<String, Map<Long, Integer>> entry : postings.entrySet()) {
+                // Term string (shared with the document maps) and its postings map
+                bytes += 40 + entry.getKey().length() + mapBytes + entryBytes;
+                // Each posting is stored twice: term -> document and document -> term
+                bytes += entry.getValue().size() * entryBytes * 2;
+            }
+            bytes += documents.size() * (mapBytes + entryBytes * 2);
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A matching document and its relevance score
+     */
+    public static class Hit implements Comparable<Hit> {
+
+        private final long documentId;
+        private final double score;
+
+        public Hit(long documentId, double score) {
+            this.documentId = documentId;
+            this.score = score;
+        }
+
+        public long getDocumentId() {
+            return documentId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Double.compare(score, other.score);
+            // Lower ID ranks higher on equal scores, for stable results
+            return byScore != 0 ? byScore : Long.compare(other.documentId, documentId);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.openclassrooms.chatop.search;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe struct-of-arrays copy of the numeric rental columns
+ * Price, surface and creation date are mirrored into primitive arrays so
+ * range filters are tight, branch-free scans over contiguous memory instead
+ * of walking BigDecimal fields of scattered objects
+ */
+public class RentalColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    // NaN when the rental has no surface
+    private double[] surfaces = new double[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private RentalResponse[] rentals = new RentalResponse[INITIAL_CAPACITY];
+    private int size;
+
+    // rental ID -> row
+    private final Map<Long, Integer> rows = new HashMap<>();
+
+    /**
+     * Add a rental or overwrite its row
+     */
+    public void upsert(RentalResponse rental) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(rental.getId());
+            if (row == null) {
+                if (size == ids.length) {
+                    grow();
+                }
+                row = size++;
+                rows.put(rental.getId(), row);
+            }
+            ids[row] = rental.getId();
+            prices[row] = rental.getPrice() != null ? rental.getPrice().doubleValue() : Double.NaN;
+            surfaces[row] = rental.getSurface() != null ? rental.getSurface().doubleValue() : Double.NaN;
+            createdAt[row] = rental.getCreatedAt() != null
+                    ? rental.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : Long.MIN_VALUE;
+            rentals[row] = rental;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        surfaces = Arrays.copyOf(surfaces, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        rentals = Arrays.copyOf(rentals, capacity);
+    }
+
+    /**
+     * Remove every row
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(rentals, 0, size, null);
+            rows.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of rentals
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filter rentals on price and surface ranges (inclusive bounds) and sort
+     * the matches
+     * A null bound means unbounded. Rentals without a surface only match when
+     * no surface bound is given.
+     *
+     * @param sort  Sort keys, see {@link SortKey}
+     * @param limit Maximum number of rentals returned
+     * @return The total number of matches and the first sorted matches
+     */
+    public Result filter(Double minPrice, Double maxPrice, Double minSurface, Double maxSurface,
+            SortKey[] sort, int limit) {
+        double minP = minPrice != null ? minPrice : Double.NEGATIVE_INFINITY;
+        double maxP = maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY;
+        boolean checkSurface = minSurface != null || maxSurface != null;
+        double minS = minSurface != null ? minSurface : Double.NEGATIVE_INFINITY;
+        double maxS = maxSurface != null ? maxSurface : Double.POSITIVE_INFINITY;
+
+        lock.readLock().lock();
+        try {
+            int[] matches = new int[size];
+            int count = 0;
+
+            // Non short-circuit operators and a conditional increment keep the
+            // loop free of branches
+            for (int i = 0; i < size; i++) {
+                double price = prices[i];
+                double surface = surfaces[i];
+                boolean match = (price >= minP) & (price <= maxP)
+                        & (!checkSurface | ((surface >= minS) & (surface <= maxS)));
+                matches[count] = i;
+                count += match ? 1 : 0;
+            }
+
+            int[] top = topRows(matches, count, sort, limit);
+            RentalResponse[] page = new RentalResponse[top.length];
+            for (int i = 0; i < top.length; i++) {
+                page[i] = rentals[top[i]];
+            }
+            return new Result(count, Arrays.asList(page));
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Select the first limit matching rows in sort order, without sorting every
+     * match: a bounded max-heap keeps the best rows seen so far (worst on top),
+     * O(count log limit) on primitive row indices
+     */
+    private int[] topRows(int[] matches, int count, SortKey[] sort, int limit) {
+        int k = Math.max(0, Math.min(limit, count));
+        int[] heap = new int[k];
+        if (k == 0) {
+            return heap;
+        }
+        int heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            int row = matches[i];
+            if (heapSize < k) {
+                heap[heapSize] = row;
+                siftUp(heap, heapSize++, sort);
+            } else if (compareRows(row, heap[0], sort) < 0) {
+                heap[0] = row;
+                siftDown(heap, k, sort);
+            }
+        }
+        // Heap sort: move the worst row to the end until the heap is empty
+        for (int end = k - 1; end > 0; end--) {
+            swap(heap, 0, end);
+            siftDown(heap, end, sort);
+        }
+        return heap;
+    }
+
+    private void siftUp(int[] heap, int index, SortKey[] sort) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compareRows(heap[index], heap[parent], sort) <= 0) {
+                return;
+            }
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int heapSize, SortKey[] sort) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && compareRows(heap[left], heap[worst], sort) > 0) {
+                worst = left;
+            }
+            if (right < heapSize && compareRows(heap[right], heap[worst], sort) > 0) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    /**
+     * Compare two rows on the sort keys, ties are always broken by ID for a
+     * stable order
+     */
+    private int compareRows(int a, int b, SortKey[] sort) {
+        for (SortKey key : sort) {
+            int result = switch (key.getField()) {
+                case PRICE -> Double.compare(prices[a], prices[b]);
+                case SURFACE -> Double.compare(surfaces[a], surfaces[b]);
+                case CREATED_AT -> Long.compare(createdAt[a], createdAt[b]);
+            };
+            if (result != 0) {
+                return key.isDescending() ? -result : result;
+            }
+        }
+        return Long.compare(ids[a], ids[b]);
+    }
+
+    /**
+     * Sortable column
+     */
+    public enum Field {
+        PRICE, SURFACE, CREATED_AT
+    }
+
+    /**
+     * One sort key, parsed from "price", "-surface", "created_at"...
+     * A leading "-" means descending
+     */
+    public static class SortKey {
+
+        private final Field field;
+        private final boolean descending;
+
+        public SortKey(Field field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+
+        /**
+         * Parse a comma separated list of sort keys
+         *
+         * @throws IllegalArgumentException on unknown fields
+         */
+        public static SortKey[] parseAll(String sort) {
+            if (sort == null || sort.isBlank()) {
+                return new SortKey[0];
+            }
+            String[] parts = sort.split(",");
+            SortKey[] keys = new SortKey[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                String part = parts[i].trim();
+                boolean descending = part.startsWith("-");
+                String name = descending ? part.substring(1) : part;
+                try {
+                    keys[i] = new SortKey(Field.valueOf(name.toUpperCase()), descending);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown sort field: " + name);
+                }
+            }
+            return keys;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+    }
+
+    /**
+     * Filter result: total number of matches and the returned rentals
+     */
+    public static class Result {
+
+        private final int total;
+        private final List<RentalResponse> rentals;
+
+        public Result(int total, List<RentalResponse> rentals) {
+            this.total = total;
+            this.rentals = rentals;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<RentalResponse> getRentals() {
+            return rentals;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.openclassrooms.chatop.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns free text into index terms
+ * Lower-cases, strips accents, splits on anything that is not a letter or a
+ * digit, drops stop words and optionally applies a light French/English
+ * stemmer (plural and common suffix stripping)
+ */
+public class TextAnalyzer {
+
+    private static final int MIN_TERM_LENGTH = 2;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // French
+            "au", "aux", "avec", "ce", "ces", "dans", "de", "des", "du", "en", "et", "la", "le", "les",
+            "leur", "ou", "par", "pas", "pour", "qui", "que", "sa", "se", "ses", "son", "sur", "un", "une",
+            // English
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "the", "this", "to", "with");
+
+    // Longest suffixes first
+    private static final String[] SUFFIXES = {
+            "issements", "issement", "ements", "ations", "ement", "ation", "ments", "ment", "ities", "ness",
+            "ings", "ing", "ity", "ies", "es", "s", "x" };
+
+    private final boolean stemming;
+
+    public TextAnalyzer(boolean stemming) {
+        this.stemming = stemming;
+    }
+
+    /**
+     * Analyze a text into the list of its terms, in order, duplicates included
+     */
+    public List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addTerm(terms, normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private void addTerm(List<String> terms, String token) {
+        if (token.length() < MIN_TERM_LENGTH || STOP_WORDS.contains(token)) {
+            return;
+        }
+        terms.add(stemming ? stem(token) : token);
+    }
+
+    /**
+     * Light stemmer: strips the longest known suffix while keeping a stem of at
+     * least 3 characters
+     */
+    static String stem(String term) {
+        if (!Character.isLetter(term.charAt(term.length() - 1))) {
+            return term;
+        }
+        for (String suffix : SUFFIXES) {
+            if (term.length() - suffix.length() >= 3 && term.endsWith(suffix)) {
+                return term.substring(0, term.length() - suffix.length());
+            }
+        }
+        return term;
+    }
+}
@@ -2,12 +2,15 @@ package com.openclassrooms.chatop.security;
 
 import com.openclassrooms.chatop.service.AuthService;
 import com.openclassrooms.chatop.service.JwtService;
+import com.openclassrooms.chatop.service.TokenVersionService;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -39,6 +42,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    // Authenticate from the token claims, without loading the user
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
     // Default constructor for bean creation
     public JwtAuthenticationFilter() {
     }
@@ -52,18 +62,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             FilterChain filterChain) throws ServletException, IOException {
 
         String requestPath = request.getServletPath();
-        logger.info("🔍 JWT Filter processing: {}", requestPath);
+        logger.debug("JWT Filter processing: {}", requestPath);
 
         try {
             // Extract JWT token from request
             String jwt = getJwtFromRequest(request);
 
-            if (jwt != null && jwtService.validateToken(jwt)) {
-                // Get username from token
-                String username = jwtService.getUsernameFromToken(jwt);
+            if (jwt != null) {
+                // Signature and expiration are checked by a single parse
+                VerifiedClaims claims = jwtService.verify(jwt);
+                String username = claims.getSubject();
 
-                // Load user details
-                UserDetails userDetails = authService.loadUserByUsername(username);
+                UserDetails userDetails = resolveUser(claims);
+                if (userDetails == null) {
+                    logger.warn("JWT token was revoked for user: {}", username);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
 
                 // Create authentication token
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
@@ -86,6 +101,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             logger.warn("JWT token is unsupported: {}", e.getMessage());
         } catch (MalformedJwtException e) {
             logger.warn("JWT token is malformed: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.warn("JWT token is invalid: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.warn("JWT token compact of handler are invalid: {}", e.getMessage());
         } catch (Exception e) {
@@ -96,6 +113,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Get the user a verified token was issued to
+     * Tokens carrying the identity claims are authenticated from the claims
+     * alone (stateless mode), older tokens load the user. Tokens without a
+     * token version cannot be revoked and are accepted until they expire
+     *
+     * @return The user, null if the token was revoked
+     */
+    private UserDetails resolveUser(VerifiedClaims claims) {
+        if (claims.getTokenVersion() != null
+                && !tokenVersionService.isCurrent(claims.getUserId(), claims.getTokenVersion())) {
+            return null;
+        }
+        if (stateless && claims.isSelfContained()) {
+            return new JwtUserPrincipal(claims.getUserId(), claims.getSubject(), claims.getName());
+        }
+        return authService.loadUserByUsername(claims.getSubject());
+    }
+
     /**
      * Extract JWT token from the Authorization header
      * Expected format: "Bearer <token>"
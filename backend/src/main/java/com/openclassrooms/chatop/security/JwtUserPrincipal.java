@@ -0,0 +1,58 @@
+package com.openclassrooms.chatop.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Authenticated user built from the claims of a verified token, without
+ * loading the user from the database
+ * getUsername() is the email, as for users loaded by AuthService
+ */
+public class JwtUserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final String name;
+
+    public JwtUserPrincipal(Long id, String email, String name) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of();
+    }
+
+    // No credentials: the token was the proof of identity
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return "JwtUserPrincipal{id=" + id + ", email='" + email + "'}";
+    }
+}
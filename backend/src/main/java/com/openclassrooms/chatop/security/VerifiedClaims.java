@@ -0,0 +1,95 @@
+package com.openclassrooms.chatop.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Claims of a JWT token whose signature and expiration have been checked
+ * Immutable, so verified tokens can be cached and shared between requests
+ */
+public class VerifiedClaims {
+
+    // Identity claims embedded at issue time
+    public static final String USER_ID = "userId";
+    public static final String NAME = "name";
+    public static final String TOKEN_VERSION = "ver";
+
+    private final String subject;
+    private final Long userId;
+    private final String name;
+    private final Integer tokenVersion;
+    private final Instant issuedAt;
+    private final Instant expiration;
+
+    public VerifiedClaims(String subject, Long userId, String name, Integer tokenVersion, Instant issuedAt,
+            Instant expiration) {
+        this.subject = subject;
+        this.userId = userId;
+        this.name = name;
+        this.tokenVersion = tokenVersion;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    /**
+     * Copy the claims used by the application out of parsed claims
+     */
+    public static VerifiedClaims of(Claims claims) {
+        return new VerifiedClaims(
+                claims.getSubject(),
+                claims.get(USER_ID, Long.class),
+                claims.get(NAME, String.class),
+                claims.get(TOKEN_VERSION, Integer.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+    }
+
+    /**
+     * Check if the token has expired at the given instant
+     */
+    public boolean isExpiredAt(Instant instant) {
+        return expiration != null && !expiration.isAfter(instant);
+    }
+
+    /**
+     * Token subject (user email)
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * User ID claim, null when the token does not carry it
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Token version claim, null when the token does not carry it
+     */
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    /**
+     * Check if the token carries the identity claims needed to authenticate
+     * without loading the user
+     */
+    public boolean isSelfContained() {
+        return userId != null && subject != null && tokenVersion != null;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiration() {
+        return expiration;
+    }
+}
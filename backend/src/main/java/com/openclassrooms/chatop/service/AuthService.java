@@ -1,17 +1,26 @@
 package com.openclassrooms.chatop.service;
 
+import com.openclassrooms.chatop.config.CacheConfig;
 import com.openclassrooms.chatop.dto.request.RegisterRequest;
 import com.openclassrooms.chatop.dto.response.AuthResponse;
 import com.openclassrooms.chatop.dto.response.UserResponse;
 import com.openclassrooms.chatop.entity.User;
 import com.openclassrooms.chatop.repository.UserRepository;
+import com.openclassrooms.chatop.security.JwtUserPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -19,23 +28,33 @@ import java.util.Optional;
 
 /**
  * Authentication service handling user registration and user details loading
- * Implements UserDetailsService for Spring Security integration
+ * Implements UserDetailsService for Spring Security integration, and
+ * UserDetailsPasswordService to store re-hashed passwords
  */
 @Service
-public class AuthService implements UserDetailsService {
+public class AuthService implements UserDetailsService, UserDetailsPasswordService {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final Cache userDetailsCache;
+    private final Timer userDetailsLoadTimer;
 
     public AuthService(UserRepository userRepository,
             PasswordEncoder passwordEncoder,
-            JwtService jwtService) {
+            JwtService jwtService,
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.userDetailsCache = cacheManager.getCache(CacheConfig.USER_DETAILS_CACHE);
+        // Hit/miss counters are published by Actuator under cache.gets
+        this.userDetailsLoadTimer = Timer.builder("auth.user-details.load")
+                .description("Loads of user details from the database on cache misses")
+                .register(meterRegistry);
     }
 
     /**
@@ -61,10 +80,11 @@ public class AuthService implements UserDetailsService {
 
         // Save user to database
         User savedUser = userRepository.save(user);
+        evictUser(savedUser.getEmail());
         logger.info("User registered successfully with ID: {}", savedUser.getId());
 
         // Generate JWT token
-        String token = jwtService.generateToken(savedUser.getEmail());
+        String token = jwtService.generateToken(savedUser);
 
         return new AuthResponse(token, savedUser);
     }
@@ -90,11 +110,54 @@ public class AuthService implements UserDetailsService {
     /**
      * Implementation of UserDetailsService interface
      * Used by Spring Security for authentication
+     * Served from the user details cache, the database is only read on a miss
+     * (unknown emails are not cached)
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         logger.debug("Loading user by email: {}", email);
 
+        UserSnapshot snapshot = getSnapshot(email);
+
+        // A new UserDetails on each call: Spring Security erases the password of
+        // the instance it authenticated, which must not reach the cached copy
+        return org.springframework.security.core.userdetails.User.builder()
+                .username(snapshot.email)
+                .password(snapshot.password)
+                .authorities(new ArrayList<>()) // Empty authorities for now
+                .accountExpired(false)
+                .accountLocked(false)
+                .credentialsExpired(false)
+                .disabled(false)
+                .build();
+    }
+
+    /**
+     * Get the ID of an authenticated user
+     * Read from the token claims for stateless principals, otherwise from the
+     * user details cache
+     *
+     * @throws UsernameNotFoundException if the user no longer exists
+     */
+    public Long getUserId(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof JwtUserPrincipal principal && principal.getId() != null) {
+            return principal.getId();
+        }
+        return getSnapshot(authentication.getName()).id;
+    }
+
+    private UserSnapshot getSnapshot(String email) {
+        try {
+            return userDetailsCache.get(email, () -> userDetailsLoadTimer.recordCallable(() -> loadSnapshot(email)));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof UsernameNotFoundException notFound) {
+                throw notFound;
+            }
+            throw e;
+        }
+    }
+
+    private UserSnapshot loadSnapshot(String email) {
         Optional<User> userOptional = userRepository.findByEmail(email);
 
         if (userOptional.isEmpty()) {
@@ -104,19 +167,66 @@ public class AuthService implements UserDetailsService {
 
         User user = userOptional.get();
         logger.debug("User loaded successfully: {}", email);
+        return new UserSnapshot(user.getId(), user.getEmail(), user.getPassword());
+    }
 
-        // Return Spring Security UserDetails object
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getEmail())
-                .password(user.getPassword())
-                .authorities(new ArrayList<>()) // Empty authorities for now
-                .accountExpired(false)
-                .accountLocked(false)
-                .credentialsExpired(false)
-                .disabled(false)
+    /**
+     * Implementation of UserDetailsPasswordService interface
+     * Called by Spring Security after a successful login when the stored hash
+     * was made with a lower BCrypt strength than configured
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        String email = userDetails.getUsername();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        evictUser(email);
+        logger.info("Password hash upgraded for user ID: {}", user.getId());
+
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
                 .build();
     }
 
+    /**
+     * Remove a user from the user details cache
+     * Must be called whenever the email or password of a user changes (after
+     * commit when called in a transaction)
+     */
+    public void evictUser(String email) {
+        userDetailsCache.evict(email);
+    }
+
+    /**
+     * Immutable copy of the user fields needed to authenticate and identify
+     * the user
+     */
+    private static final class UserSnapshot {
+
+        private final Long id;
+        private final String email;
+        private final String password;
+
+        private UserSnapshot(Long id, String email, String password) {
+            this.id = id;
+            this.email = email;
+            this.password = password;
+        }
+    }
+
+    /**
+     * Get the last update date of a user without loading the entity
+     * Used by conditional GET handling
+     */
+    public Optional<LocalDateTime> getUserLastModified(Long id) {
+        logger.debug("Fetching last update date for user ID: {}", id);
+        return userRepository.findUpdatedAtById(id);
+    }
+
     public UserResponse getUserById(Long id) {
         logger.debug("Fetching user info for ID: {}", id);
 
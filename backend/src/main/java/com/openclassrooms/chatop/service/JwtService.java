@@ -1,7 +1,12 @@
 package com.openclassrooms.chatop.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.security.VerifiedClaims;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -10,12 +15,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Base64;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -28,22 +40,82 @@ public class JwtService {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private final Long jwtExpirationMs;
 
-    @Value("${jwt.expiration}")
-    private Long jwtExpirationMs;
+    // Key and parser are immutable and thread-safe: built once, on first use so
+    // a weak default secret only fails when a token is handled
+    private final SingletonSupplier<SecretKey> signingKey;
+    private final SingletonSupplier<JwtParser> parser;
+
+    // SHA-256 digest of recently verified tokens -> claims, skips the HMAC and
+    // JSON parsing for clients sending the same token on every request
+    private final Cache<String, VerifiedClaims> verifiedTokens;
+
+    public JwtService(
+            @Value("${jwt.secret}") String jwtSecret,
+            @Value("${jwt.expiration}") Long jwtExpirationMs,
+            @Value("${jwt.verified-cache.max-size:10000}") long verifiedCacheSize,
+            @Value("${jwt.verified-cache.ttl:5m}") Duration verifiedCacheTtl) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.signingKey = SingletonSupplier.of(() -> Keys.hmacShaKeyFor(jwtSecret.getBytes()));
+        this.parser = SingletonSupplier.of(() -> Jwts.parserBuilder()
+                .setSigningKey(signingKey.obtain())
+                .build());
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfterWrite(verifiedCacheTtl)
+                .build();
+    }
 
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey.obtain();
+    }
+
+    /**
+     * Verify a token and return its claims
+     * The signature and expiration are checked with a single parse; a token
+     * verified recently is only looked up by digest (its expiration is still
+     * checked)
+     *
+     * @param token JWT token
+     * @return The verified claims
+     * @throws JwtException if the token is invalid or expired
+     */
+    public VerifiedClaims verify(String token) {
+        String digest = digest(token);
+        VerifiedClaims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            if (!cached.isExpiredAt(Instant.now())) {
+                return cached;
+            }
+            verifiedTokens.invalidate(digest);
+        }
+
+        // Throws ExpiredJwtException, MalformedJwtException, SignatureException...
+        VerifiedClaims claims = VerifiedClaims.of(parser.obtain().parseClaimsJws(token).getBody());
+        verifiedTokens.put(digest, claims);
+        return claims;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on every Java platform
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
      * Generate JWT token for authenticated user
+     * The token carries no token version, so logout cannot revoke it
      * 
-     * @param user The authenticated user
+     * @param email The authenticated user's email
      * @return JWT token string
+     * @deprecated use {@link #generateToken(User)}
      */
+    @Deprecated
     public String generateToken(String email) {
         return Jwts.builder()
                 .setSubject(email)
@@ -53,8 +125,25 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Generate JWT token carrying the user's identity claims (ID, name, token
+     * version), so requests can be authenticated without loading the user
+     *
+     * @param user The authenticated user
+     * @return JWT token string
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(VerifiedClaims.USER_ID, user.getId());
+        claims.put(VerifiedClaims.NAME, user.getName());
+        claims.put(VerifiedClaims.TOKEN_VERSION, user.getTokenVersion());
+        return createToken(claims, user.getEmail());
+    }
+
     /**
      * Generate JWT token with additional claims
+     * Logout can only revoke the token if the claims carry the token version
+     * ({@link VerifiedClaims#TOKEN_VERSION})
      * 
      * @param extraClaims Additional claims to include
      * @param userDetails User details (typically email)
@@ -113,7 +202,7 @@ public class JwtService {
      * @return User ID
      */
     public Long extractUserId(String token) {
-        return extractClaim(token, claims -> claims.get("userId", Long.class));
+        return extractClaim(token, claims -> claims.get(VerifiedClaims.USER_ID, Long.class));
     }
 
     /**
@@ -146,9 +235,7 @@ public class JwtService {
      */
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
+            return parser.obtain()
                     .parseClaimsJws(token)
                     .getBody();
         } catch (JwtException e) {
@@ -208,11 +295,9 @@ public class JwtService {
      */
     public Boolean validateToken(String token) {
         try {
-            extractAllClaims(token); // This will throw if token is invalid
-            boolean isValid = !isTokenExpired(token);
-
-            logger.debug("Basic JWT token validation: {}", isValid);
-            return isValid;
+            verify(token); // Throws if the token is invalid or expired
+            logger.debug("Basic JWT token validation: true");
+            return true;
 
         } catch (JwtException e) {
             logger.error("JWT token validation failed: {}", e.getMessage());
@@ -3,6 +3,7 @@ package com.openclassrooms.chatop.service;
 import com.openclassrooms.chatop.dto.request.LoginRequest;
 import com.openclassrooms.chatop.dto.response.AuthResponse;
 import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.exceptions.PasswordHashingBusyException;
 import com.openclassrooms.chatop.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,14 +53,16 @@ public class LoginService {
             User user = userRepository.findByEmail(request.getEmail())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            // Generate JWT token using email (not User object to avoid cast issues)
-            String token = jwtService.generateToken(request.getEmail());
+            // Generate JWT token carrying the user's identity claims
+            String token = jwtService.generateToken(user);
 
             logger.info("User logged in successfully: {}", request.getEmail());
 
             // Use constructor that takes (String token, User user)
             return new AuthResponse(token, user);
 
+        } catch (PasswordHashingBusyException e) {
+            throw e; // 503 with Retry-After, not a credentials error
         } catch (Exception e) {
             logger.error("Login failed for user: {} - {}", request.getEmail(), e.getMessage());
             throw new RuntimeException("Invalid credentials");
@@ -0,0 +1,218 @@
+package com.openclassrooms.chatop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.archive.ArchivedMessage;
+import com.openclassrooms.chatop.archive.MessageArchive;
+import com.openclassrooms.chatop.repository.InboxCounterRepository;
+import com.openclassrooms.chatop.repository.MessageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Service moving old messages out of the messages table into compressed
+ * archive segments, and reading them back
+ * The archiver runs in the background when messages.archive.enabled is set.
+ * Each batch is durably written to a segment before being deleted from the
+ * table; reads of a rental's messages or of a message by ID fall back to
+ * the archive, whose sparse indexes are kept in memory.
+ */
+@Service
+public class MessageArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiveService.class);
+
+    private final MessageRepository messageRepository;
+    private final InboxCounterRepository inboxCounterRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageArchive archive;
+
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final int batchSize;
+
+    public MessageArchiveService(MessageRepository messageRepository,
+            InboxCounterRepository inboxCounterRepository,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${messages.archive.enabled:false}") boolean enabled,
+            @Value("${messages.archive.dir:./archive/messages}") Path directory,
+            @Value("${messages.archive.max-age:365d}") Duration maxAge,
+            @Value("${messages.archive.batch-size:1000}") int batchSize,
+            @Value("${messages.archive.block-size:256}") int blockSize) throws IOException {
+        this.messageRepository = messageRepository;
+        this.inboxCounterRepository = inboxCounterRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.batchSize = batchSize;
+
+        // Segments written before a restart stay readable, even with archiving off
+        this.archive = new MessageArchive(directory, objectMapper, blockSize);
+        archive.load();
+        logger.info("Message archive: {} segments, {} messages (archiving {})", archive.segmentCount(),
+                archive.messageCount(), enabled ? "enabled" : "disabled");
+
+        Gauge.builder("messages.archive.messages", archive, MessageArchive::messageCount)
+                .description("Messages moved to the archive")
+                .register(meterRegistry);
+        Gauge.builder("messages.archive.segments", archive, MessageArchive::segmentCount)
+                .description("Archive segment files")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Scheduled archiving run
+     */
+    @Scheduled(fixedDelayString = "${messages.archive.interval:1h}", initialDelayString = "${messages.archive.interval:1h}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveOldMessages();
+        } catch (Exception e) {
+            // Messages stay in the table, the next run retries
+            logger.error("Message archiving failed", e);
+        }
+    }
+
+    /**
+     * Move every message older than messages.archive.max-age to the archive,
+     * one batch (segment) at a time
+     * A crash between the segment write and the delete leaves the batch in
+     * both places; readers deduplicate by ID, preferring a copy with a read
+     * date
+     *
+     * @return The number of archived messages
+     */
+    public synchronized int archiveOldMessages() throws IOException {
+        LocalDateTime before = LocalDateTime.now().minus(maxAge);
+        long start = System.nanoTime();
+        int total = 0;
+
+        while (true) {
+            List<ArchivedMessage> batch = messageRepository.findArchivable(before, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            archive.append(batch);
+            total += transactionTemplate.execute(status -> removeFromTable(batch));
+
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            logger.info("Archived {} messages created before {} in {} ms", total, before,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        return total;
+    }
+
+    /**
+     * Delete the archived messages whose archived copy is still current
+     * The batch was read before this transaction: a message marked as read
+     * since then (and counted by markAsRead) stays in the table, and is
+     * archived again with its read date by the next batch
+     *
+     * @return The number of deleted messages
+     */
+    private int removeFromTable(List<ArchivedMessage> batch) {
+        Map<Long, LocalDateTime> readAtById = new HashMap<>();
+        messageRepository.lockReadStates(batch.stream().map(ArchivedMessage::getId).toList())
+                .forEach(state -> readAtById.put(state.getId(), state.getReadAt()));
+
+        List<Long> ids = new ArrayList<>(batch.size());
+        // Archived messages can no longer be marked as read
+        Map<Long, Integer> unreadByOwner = new TreeMap<>();
+        for (ArchivedMessage message : batch) {
+            if (!readAtById.containsKey(message.getId())
+                    || (message.getReadAt() == null && readAtById.get(message.getId()) != null)) {
+                continue;
+            }
+            ids.add(message.getId());
+            if (message.getReadAt() == null && !message.getUserId().equals(message.getOwnerId())) {
+                unreadByOwner.merge(message.getOwnerId(), 1, Integer::sum);
+            }
+        }
+        if (ids.size() < batch.size()) {
+            logger.info("{} archived messages changed meanwhile, not removed from the table",
+                    batch.size() - ids.size());
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        messageRepository.deleteByIdIn(ids);
+        unreadByOwner.forEach(inboxCounterRepository::decrement);
+        return ids.size();
+    }
+
+    /**
+     * Find an archived message by ID
+     */
+    public Optional<ArchivedMessage> findById(Long id) {
+        return archive.findById(id);
+    }
+
+    /**
+     * Find the archived messages about a rental, newest first
+     */
+    public List<ArchivedMessage> findByRental(Long rentalId) {
+        return archive.findByRental(rentalId);
+    }
+
+    /**
+     * Find the archived messages sent by a user or received about their
+     * rentals, newest first
+     */
+    public List<ArchivedMessage> findByUserInvolvement(Long userId, Collection<Long> ownedRentalIds) {
+        return archive.findByUserInvolvement(userId, ownedRentalIds);
+    }
+
+    /**
+     * Check if no message was archived yet
+     */
+    public boolean isEmpty() {
+        return archive.messageCount() == 0;
+    }
+
+    /**
+     * Find a page of the archived messages about a rental, newest first,
+     * following a (created_at, id) position (null for the newest)
+     * Only the blocks that can hold the page are decompressed
+     */
+    public List<ArchivedMessage> findPageByRental(Long rentalId, LocalDateTime afterCreatedAt, Long afterId,
+            int limit) {
+        return archive.findPageByRental(rentalId, afterCreatedAt, afterId, limit);
+    }
+
+    /**
+     * Check if a user sent an archived message about a rental
+     */
+    public boolean existsByUserAndRental(Long userId, Long rentalId) {
+        return archive.existsByUserAndRental(userId, rentalId);
+    }
+}
@@ -0,0 +1,246 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.event.MessageSentEvent;
+import com.openclassrooms.chatop.event.TokensRevokedEvent;
+import com.openclassrooms.chatop.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service pushing committed messages to connected clients (Server-Sent Events)
+ * Open streams are kept per user in concurrent sets, so the fan-out reads them
+ * without locking. An idle stream holds no thread (async servlet request).
+ * Each stream queues its events and drains them on a virtual thread, one
+ * drain at a time: events reach a client in order and a slow client never
+ * delays the others.
+ */
+@Service
+public class MessageEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageEventService.class);
+
+    private static final String MESSAGE_EVENT = "message";
+
+    // Events queued for a stream that does not keep up, the stream is closed
+    // beyond that and the client reconnects
+    private static final int MAX_PENDING_EVENTS = 1000;
+
+    // user ID -> open streams (a user can have several tabs open)
+    private final Map<Long, Set<EventStream>> emitters = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("message-events-heartbeat").daemon().factory());
+
+    private final UserRepository userRepository;
+    private final Duration timeout;
+
+    public MessageEventService(UserRepository userRepository, MeterRegistry meterRegistry,
+            @Value("${messages.events.timeout:30m}") Duration timeout,
+            @Value("${messages.events.heartbeat:25s}") Duration heartbeat) {
+        this.userRepository = userRepository;
+        this.timeout = timeout;
+
+        Gauge.builder("messages.events.connections", connections, AtomicInteger::get)
+                .description("Open message event streams")
+                .register(meterRegistry);
+
+        // Comment lines keep proxies from closing idle streams and reveal dead ones
+        heartbeatExecutor.scheduleAtFixedRate(this::heartbeat,
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open a stream for a user
+     * The client reconnects on its own when the stream times out
+     */
+    public SseEmitter subscribe(String userEmail) {
+        Long userId = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail))
+                .getId();
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        EventStream stream = new EventStream(userId, emitter);
+
+        emitters.compute(userId, (id, userEmitters) -> {
+            Set<EventStream> set = userEmitters != null ? userEmitters : ConcurrentHashMap.newKeySet();
+            set.add(stream);
+            return set;
+        });
+        connections.incrementAndGet();
+
+        emitter.onCompletion(() -> unsubscribe(userId, stream));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(userId, stream));
+
+        logger.debug("User {} subscribed to message events ({} open streams)", userId, connections.get());
+        return emitter;
+    }
+
+    private void unsubscribe(Long userId, EventStream stream) {
+        emitters.computeIfPresent(userId, (id, userEmitters) -> {
+            if (userEmitters.remove(stream)) {
+                connections.decrementAndGet();
+            }
+            return userEmitters.isEmpty() ? null : userEmitters;
+        });
+    }
+
+    /**
+     * Push a committed message to the rental owner and to the sender
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMessageSent(MessageSentEvent event) {
+        push(event.getOwnerId(), event);
+        push(event.getMessage().getUserId(), event);
+    }
+
+    /**
+     * Close the streams of a user whose tokens were revoked
+     * A stream is only authenticated when it is opened: the client reconnects
+     * and is rejected unless it has a new token
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTokensRevoked(TokensRevokedEvent event) {
+        Set<EventStream> userEmitters = emitters.get(event.getUserId());
+        if (userEmitters == null) {
+            return;
+        }
+
+        List<EventStream> streams = List.copyOf(userEmitters);
+        streams.forEach(stream -> stream.close(null));
+        logger.debug("Closed {} message event streams of user {}: tokens revoked", streams.size(),
+                event.getUserId());
+    }
+
+    private void push(Long userId, MessageSentEvent event) {
+        Set<EventStream> userEmitters = emitters.get(userId);
+        if (userEmitters == null) {
+            return;
+        }
+
+        for (EventStream stream : userEmitters) {
+            stream.enqueue(SseEmitter.event()
+                    .name(MESSAGE_EVENT)
+                    .id(String.valueOf(event.getMessage().getId()))
+                    .data(event.getMessage(), MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void heartbeat() {
+        emitters.values().forEach(userEmitters -> userEmitters
+                .forEach(stream -> stream.enqueue(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    /**
+     * One open stream and the events not sent yet
+     * SseEmitter.send must not be called concurrently for ordered output, so
+     * at most one drain task runs per stream: the thread that queues an event
+     * into an idle stream starts it, the others only queue
+     */
+    private final class EventStream {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        EventStream(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (pendingCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+                pendingCount.decrementAndGet();
+                logger.debug("Closing message event stream of user {}: {} events pending", userId,
+                        MAX_PENDING_EVENTS);
+                close(null);
+                return;
+            }
+            pending.add(event);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down, the stream is being completed
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            SseEmitter.SseEventBuilder event;
+            while ((event = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Client gone or stream already completed
+                    logger.debug("Dropping message event stream of user {}: {}", userId, e.getMessage());
+                    close(e);
+                    return;
+                }
+            }
+            draining.set(false);
+            // An event queued after the last poll but before the flag was reset
+            // found the stream draining and did not start a drain
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void close(Throwable error) {
+            unsubscribe(userId, this);
+            pending.clear();
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                emitter.complete();
+            }
+        }
+
+        void complete() {
+            emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        emitters.values().forEach(userEmitters -> userEmitters.forEach(EventStream::complete));
+        emitters.clear();
+        sendExecutor.shutdownNow();
+    }
+}
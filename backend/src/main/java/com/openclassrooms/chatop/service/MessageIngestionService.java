@@ -0,0 +1,323 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.request.MessageRequest;
+import com.openclassrooms.chatop.exceptions.MessageQueueFullException;
+import com.openclassrooms.chatop.ingestion.IngestionMode;
+import com.openclassrooms.chatop.ingestion.PendingMessage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service writing sent messages, synchronously or through a batched queue
+ * In ENQUEUE and COMMIT modes requests are validated and authorized on the
+ * request thread, then handed to a bounded queue drained by a single writer
+ * thread that inserts whole batches in one transaction. A full queue is
+ * rejected right away (429) instead of piling up requests. Accepted messages
+ * are retried while the database is unavailable and only dropped when it
+ * refuses them. On shutdown the writer commits every accepted message before
+ * the database is closed.
+ */
+@Service
+public class MessageIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageIngestionService.class);
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    // Backoff between two attempts of a batch while the database is unavailable
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    // Queued by stop() behind the last accepted message
+    private static final Submission STOP = new Submission(null, null);
+
+    private final MessageService messageService;
+    private final IngestionMode mode;
+    private final int batchSize;
+    private final Duration commitTimeout;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<Submission> queue;
+    // Held shared while queuing a message, exclusively to stop accepting them
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+
+    private boolean running;
+    private Thread writer;
+
+    public MessageIngestionService(MessageService messageService, MeterRegistry meterRegistry,
+            @Value("${messages.ingestion.mode:sync}") IngestionMode mode,
+            @Value("${messages.ingestion.queue-capacity:10000}") int queueCapacity,
+            @Value("${messages.ingestion.batch-size:50}") int batchSize,
+            @Value("${messages.ingestion.commit-timeout:5s}") Duration commitTimeout,
+            @Value("${messages.ingestion.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.messageService = messageService;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.commitTimeout = commitTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("messages.ingestion.queue.size", queue, BlockingQueue::size)
+                .description("Messages waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start the writer thread unless messages are written synchronously
+     */
+    @PostConstruct
+    void start() {
+        logger.info("Message ingestion mode: {}", mode);
+        if (mode == IngestionMode.SYNC) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("message-ingestion-writer").daemon().start(this::drain);
+    }
+
+    public IngestionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Send a message according to the ingestion mode
+     *
+     * @return true once the message is committed, false when it is only queued
+     *         (ENQUEUE mode, or COMMIT mode past the commit timeout): it will be
+     *         written, the client must not send it again
+     * @throws MessageQueueFullException when the queue has no room left
+     */
+    public boolean submit(MessageRequest request, String userEmail) {
+        if (mode == IngestionMode.SYNC) {
+            messageService.sendMessage(request, userEmail);
+            return true;
+        }
+
+        PendingMessage pending = messageService.prepareMessage(request, userEmail);
+        Submission submission = new Submission(pending,
+                mode == IngestionMode.COMMIT ? new CompletableFuture<>() : null);
+
+        boolean accepted;
+        acceptLock.readLock().lock();
+        try {
+            accepted = running && queue.offer(submission);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (!accepted) {
+            logger.warn("Message queue full or stopped ({} messages), rejecting message from {}", queue.size(),
+                    userEmail);
+            throw new MessageQueueFullException(RETRY_AFTER_SECONDS);
+        }
+
+        return submission.committed != null && awaitCommit(submission.committed);
+    }
+
+    /**
+     * @return false if the message is not committed within the commit timeout
+     */
+    private boolean awaitCommit(CompletableFuture<Void> committed) {
+        try {
+            committed.get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // The message is still queued and will be written
+            return false;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to send message", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to send message", e);
+        }
+    }
+
+    /**
+     * Writer loop: wait for a message, then take everything queued behind it
+     * up to the batch size, until the STOP marker queued by stop()
+     * The writer is never interrupted, a batch being inserted always commits
+     */
+    private void drain() {
+        List<Submission> batch = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            Submission first;
+            try {
+                first = queue.take();
+            } catch (InterruptedException e) {
+                // Only the STOP marker ends the loop, accepted messages must be written
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+
+            // Nothing is queued after the marker
+            stopping = batch.get(batch.size() - 1) == STOP;
+            if (stopping) {
+                batch.remove(batch.size() - 1);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            batch.clear();
+        }
+        logger.info("Message ingestion writer stopped");
+    }
+
+    private void write(List<Submission> batch) {
+        long start = System.nanoTime();
+        try {
+            saveWithRetry(batch.stream().map(Submission::pending).toList());
+            batch.forEach(Submission::complete);
+            logger.debug("Wrote {} messages in {} ms", batch.size(), (System.nanoTime() - start) / 1_000_000);
+
+        } catch (RuntimeException e) {
+            // One bad row must not drop the whole batch: retry one by one
+            logger.warn("Batch of {} messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Submission submission : batch) {
+                try {
+                    saveWithRetry(List.of(submission.pending()));
+                    submission.complete();
+                } catch (RuntimeException rowError) {
+                    logger.error("Dropping message {}", submission.pending(), rowError);
+                    submission.fail(rowError);
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert messages, waiting for the database to come back on transient
+     * failures: ENQUEUE messages were already acknowledged, only a message
+     * the database refuses (constraint violation...) is given up
+     * Meanwhile the queue fills up and new messages are answered 429
+     *
+     * @throws RuntimeException on a permanent failure
+     */
+    private void saveWithRetry(List<PendingMessage> messages) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (true) {
+            try {
+                messageService.saveMessages(messages);
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                logger.warn("Writing {} messages failed, retrying in {} ms: {}", messages.size(), backoff,
+                        e.getMessage());
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Connection, lock and timeout failures, which succeed once retried
+     */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        // The writer ignores interrupts, see drain()
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                // Keep waiting
+            }
+        }
+    }
+
+    /**
+     * Stop accepting messages and wait for the writer to commit the queued ones
+     * Runs before the DataSource is closed, MessageService being a dependency
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        acceptLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+
+        queue.put(STOP);
+        writer.join(shutdownTimeout.toMillis());
+        if (writer.isAlive()) {
+            logger.warn("Message ingestion writer still running after {}, {} messages not written",
+                    shutdownTimeout, queue.size());
+        }
+    }
+
+    /**
+     * Queued message, with the future completed once it is committed (COMMIT mode)
+     */
+    private static final class Submission {
+
+        private final PendingMessage pending;
+        private final CompletableFuture<Void> committed;
+
+        Submission(PendingMessage pending, CompletableFuture<Void> committed) {
+            this.pending = pending;
+            this.committed = committed;
+        }
+
+        PendingMessage pending() {
+            return pending;
+        }
+
+        void complete() {
+            if (committed != null) {
+                committed.complete(null);
+            }
+        }
+
+        void fail(Throwable error) {
+            if (committed != null) {
+                committed.completeExceptionally(error);
+            }
+        }
+    }
+}
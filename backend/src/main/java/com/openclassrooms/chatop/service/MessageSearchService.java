@@ -0,0 +1,287 @@
+package com.openclassrooms.chatop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.chatop.archive.ArchivedMessage;
+import com.openclassrooms.chatop.dto.response.MessageResponse;
+import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.event.MessageSentEvent;
+import com.openclassrooms.chatop.event.MessagesReadEvent;
+import com.openclassrooms.chatop.repository.MessageRepository;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.repository.UserRepository;
+import com.openclassrooms.chatop.search.InvertedIndex;
+import com.openclassrooms.chatop.search.TextAnalyzer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service handling full-text search over the messages a user can see
+ * (sent, or received about their rentals)
+ * The index is partitioned per user: a partition is loaded with one inbox
+ * query and the user's archived messages on the user's first search, then
+ * kept in sync with committed messages, so searches never scan the messages
+ * table. Idle partitions are evicted to bound memory.
+ */
+@Service
+public class MessageSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchService.class);
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+    private final RentalRepository rentalRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final TextAnalyzer analyzer;
+
+    // user ID -> partition holding every message the user can see
+    private final Cache<Long, Partition> partitions;
+
+    public MessageSearchService(MessageRepository messageRepository, UserRepository userRepository,
+            RentalRepository rentalRepository, MessageArchiveService messageArchiveService,
+            MeterRegistry meterRegistry,
+            @Value("${search.stemming.enabled:true}") boolean stemming,
+            @Value("${search.messages.max-users:10000}") long maxUsers,
+            @Value("${search.messages.idle-timeout:1h}") Duration idleTimeout) {
+        this.messageRepository = messageRepository;
+        this.userRepository = userRepository;
+        this.rentalRepository = rentalRepository;
+        this.messageArchiveService = messageArchiveService;
+        this.analyzer = new TextAnalyzer(stemming);
+        this.partitions = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(idleTimeout)
+                .build();
+
+        Gauge.builder("messages.search.partitions", partitions, Cache::estimatedSize)
+                .description("Users with a loaded message search partition")
+                .register(meterRegistry);
+        Gauge.builder("messages.search.memory", this, MessageSearchService::estimateMemoryBytes)
+                .description("Estimated heap used by the message search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Index a committed message in the loaded partitions of its sender and of
+     * the rental owner
+     * Partitions not loaded yet will read the message from the database
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMessageSent(MessageSentEvent event) {
+        MessageResponse message = event.getMessage();
+        for (Long userId : new Long[] { message.getUserId(), event.getOwnerId() }) {
+            Partition partition = partitions.getIfPresent(userId);
+            if (partition != null) {
+                partition.add(message);
+            }
+        }
+    }
+
+    /**
+     * Copy the read date to the indexed messages, in the loaded partition of the
+     * rental owner and in the loaded partitions of the senders
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMessagesRead(MessagesReadEvent event) {
+        Partition ownerPartition = partitions.getIfPresent(event.getOwnerId());
+        if (ownerPartition == null) {
+            return;
+        }
+        for (MessageResponse message : ownerPartition.markRead(event)) {
+            Partition senderPartition = partitions.getIfPresent(message.getUserId());
+            if (senderPartition != null) {
+                senderPartition.setReadAt(message.getId(), event.getReadAt());
+            }
+        }
+    }
+
+    /**
+     * Search the messages a user can see by the words of the message and of the
+     * rental name
+     *
+     * @param query Free text query
+     * @param limit Maximum number of results, between 1 and MAX_LIMIT
+     * @return Matching messages, best first
+     */
+    public List<MessageResponse> search(String userEmail, String query, Integer limit) {
+        int maxResults = limit != null ? limit : DEFAULT_LIMIT;
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (maxResults < 1 || maxResults > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
+
+        // Registered before the inbox query starts its own transaction: a message
+        // committed after that query's snapshot is added by onMessageSent. Not
+        // transactional for this reason, the user lookup above would otherwise
+        // start the snapshot before the partition is registered
+        Partition partition = partitions.get(user.getId(), id -> new Partition(analyzer));
+        partition.loadIfNeeded(user);
+
+        long start = System.nanoTime();
+        List<MessageResponse> results = partition.search(query, maxResults);
+        logger.info("Message search '{}' for user {} returned {} results in {} µs", query, user.getId(),
+                results.size(), (System.nanoTime() - start) / 1_000);
+        return results;
+    }
+
+    /**
+     * Estimated heap used by the loaded partitions, in bytes
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        for (Partition partition : partitions.asMap().values()) {
+            bytes += partition.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Index and messages of one user
+     */
+    private final class Partition {
+
+        private final InvertedIndex index;
+        // Messages returned by the search, by ID
+        private final Map<Long, MessageResponse> messages = new ConcurrentHashMap<>();
+        // IDs of the messages loaded from the archive, no longer in the table
+        private final Set<Long> archivedIds = ConcurrentHashMap.newKeySet();
+        private volatile boolean loaded;
+
+        Partition(TextAnalyzer analyzer) {
+            this.index = new InvertedIndex(analyzer);
+        }
+
+        void add(MessageResponse message) {
+            messages.put(message.getId(), message);
+            index.index(message.getId(), message.getRentalName(), message.getMessage());
+        }
+
+        /**
+         * Apply a mark-as-read of the partition's user, with the criteria of
+         * MessageRepository.markReceivedAsRead
+         *
+         * @return The messages marked as read
+         */
+        List<MessageResponse> markRead(MessagesReadEvent event) {
+            List<MessageResponse> marked = new ArrayList<>();
+            for (MessageResponse message : messages.values()) {
+                if (message.getReadAt() == null && !archivedIds.contains(message.getId()) && !message.getUserId().equals(event.getOwnerId())
+                        && (event.getRentalId() == null || event.getRentalId().equals(message.getRentalId()))
+                        && (event.getUpToId() == null || message.getId() <= event.getUpToId())) {
+                    setReadAt(message.getId(), event.getReadAt());
+                    marked.add(message);
+                }
+            }
+            return marked;
+        }
+
+        /**
+         * Replace an indexed message with a read copy, the text is unchanged so
+         * the index is not touched. Responses may be shared between partitions
+         * and already returned to clients, they are never modified
+         */
+        void setReadAt(Long messageId, LocalDateTime readAt) {
+            messages.computeIfPresent(messageId, (id, message) -> new MessageResponse(message.getId(),
+                    message.getMessage(), message.getRentalId(), message.getRentalName(), message.getUserId(),
+                    message.getCreatedAt(), message.getUpdatedAt(), readAt));
+        }
+
+        /**
+         * Load the user's inbox (sent and received messages) on first use
+         * The query runs in its own read-only transaction. Re-indexing a message already added by an event just replaces it
+         * The archive is read after the table: a message archived in between
+         * is written to the archive before leaving the table, so it is found
+         * in one or the other
+         */
+        synchronized void loadIfNeeded(User user) {
+            if (loaded) {
+                return;
+            }
+            long start = System.nanoTime();
+            messageRepository.findByUserInvolvement(user).forEach(this::add);
+            if (!messageArchiveService.isEmpty()) {
+                loadArchived(user);
+            }
+            loaded = true;
+
+            logger.info("Message search partition of user {} loaded: {} messages, {} terms in {} ms",
+                    user.getId(), index.size(), index.termCount(), (System.nanoTime() - start) / 1_000_000);
+        }
+
+        /**
+         * Add the user's archived messages not found in the table, with the
+         * current name of their rental
+         */
+        private void loadArchived(User user) {
+            Map<Long, String> rentalNames = new HashMap<>();
+            rentalRepository.findResponsesByOwnerId(user.getId())
+                    .forEach(rental -> rentalNames.put(rental.getId(), rental.getName()));
+            List<ArchivedMessage> archived = messageArchiveService.findByUserInvolvement(user.getId(),
+                    rentalNames.keySet()).stream()
+                    .filter(message -> !messages.containsKey(message.getId()))
+                    .toList();
+            if (archived.isEmpty()) {
+                return;
+            }
+
+            // Rentals of other owners the user wrote about
+            Set<Long> otherRentalIds = new HashSet<>();
+            archived.forEach(message -> otherRentalIds.add(message.getRentalId()));
+            otherRentalIds.removeAll(rentalNames.keySet());
+            if (!otherRentalIds.isEmpty()) {
+                rentalRepository.findResponsesByIdIn(otherRentalIds)
+                        .forEach(rental -> rentalNames.put(rental.getId(), rental.getName()));
+            }
+
+            for (ArchivedMessage message : archived) {
+                archivedIds.add(message.getId());
+                add(new MessageResponse(message.getId(), message.getMessage(), message.getRentalId(),
+                        rentalNames.get(message.getRentalId()), message.getUserId(), message.getCreatedAt(),
+                        message.getUpdatedAt(), message.getReadAt()));
+            }
+        }
+
+        List<MessageResponse> search(String query, int limit) {
+            return index.search(query, limit).stream()
+                    .map(hit -> messages.get(hit.getDocumentId()))
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+
+        long estimateMemoryBytes() {
+            // Map entry + response object and its boxed fields, plus the text
+            long bytes = index.estimateMemoryBytes();
+            for (MessageResponse message : messages.values()) {
+                bytes += 64 + 160 + 40 + message.getMessage().length()
+                        + (message.getRentalName() != null ? 40 + message.getRentalName().length() : 0);
+            }
+            return bytes;
+        }
+    }
+}
@@ -1,20 +1,41 @@
 package com.openclassrooms.chatop.service;
 
+import com.openclassrooms.chatop.archive.ArchivedMessage;
+import com.openclassrooms.chatop.dto.request.KeysetCursor;
+import com.openclassrooms.chatop.dto.request.MarkReadRequest;
 import com.openclassrooms.chatop.dto.request.MessageRequest;
+import com.openclassrooms.chatop.dto.response.ConversationResponse;
+import com.openclassrooms.chatop.dto.response.CursorPageResponse;
 import com.openclassrooms.chatop.dto.response.MessageResponse;
+import com.openclassrooms.chatop.dto.response.UnreadCountResponse;
+import com.openclassrooms.chatop.entity.Conversation;
+import com.openclassrooms.chatop.entity.ConversationId;
 import com.openclassrooms.chatop.entity.Message;
 import com.openclassrooms.chatop.entity.Rental;
 import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.event.MessageSentEvent;
+import com.openclassrooms.chatop.event.MessagesReadEvent;
+import com.openclassrooms.chatop.ingestion.PendingMessage;
+import com.openclassrooms.chatop.repository.ConversationRepository;
+import com.openclassrooms.chatop.repository.InboxCounterRepository;
 import com.openclassrooms.chatop.repository.MessageRepository;
 import com.openclassrooms.chatop.repository.RentalRepository;
 import com.openclassrooms.chatop.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -27,16 +48,35 @@ public class MessageService {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageService.class);
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Comparator<ConversationId> CONVERSATION_ORDER = Comparator
+            .comparing(ConversationId::getRentalId)
+            .thenComparing(ConversationId::getUserId);
+
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final RentalRepository rentalRepository;
+    private final InboxCounterRepository inboxCounterRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public MessageService(MessageRepository messageRepository,
             UserRepository userRepository,
-            RentalRepository rentalRepository) {
+            RentalRepository rentalRepository,
+            InboxCounterRepository inboxCounterRepository,
+            ConversationRepository conversationRepository,
+            MessageArchiveService messageArchiveService,
+            ApplicationEventPublisher eventPublisher) {
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
         this.rentalRepository = rentalRepository;
+        this.inboxCounterRepository = inboxCounterRepository;
+        this.conversationRepository = conversationRepository;
+        this.messageArchiveService = messageArchiveService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -44,6 +84,20 @@ public class MessageService {
      * The recipient is automatically the rental owner
      */
     public void sendMessage(MessageRequest request, String userEmail) {
+        PendingMessage pending = prepareMessage(request, userEmail);
+        saveMessages(List.of(pending));
+
+        logger.info("Message sent successfully from {} (ID: {}) to owner {} about rental {}",
+                userEmail, pending.getUserId(), pending.getOwnerId(), pending.getRentalId());
+    }
+
+    /**
+     * Validate and authorize a message without writing it
+     * The returned message only holds IDs, so it can be written later by the
+     * ingestion writer without loading the user and the rental again
+     */
+    @Transactional(readOnly = true)
+    public PendingMessage prepareMessage(MessageRequest request, String userEmail) {
         logger.info("Sending message from {} about rental {}", userEmail, request.getRentalId());
 
         try {
@@ -89,19 +143,8 @@ public class MessageService {
                 throw new RuntimeException("Cannot send message to your own rental");
             }
 
-            // Create message
-            Message message = new Message();
-            message.setMessage(request.getMessage());
-            message.setUser(user);
-            message.setRental(rental);
-            message.setCreatedAt(LocalDateTime.now());
-            message.setUpdatedAt(LocalDateTime.now());
-
-            // Save message
-            messageRepository.save(message);
-
-            logger.info("Message sent successfully from {} (ID: {}) to {} about rental {}",
-                    user.getEmail(), user.getId(), rental.getOwner().getEmail(), request.getRentalId());
+            return new PendingMessage(user.getId(), rental.getId(), rental.getName(), rental.getOwner().getId(),
+                    request.getMessage(), LocalDateTime.now());
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -111,10 +154,119 @@ public class MessageService {
         }
     }
 
+    /**
+     * Insert prepared messages in the current transaction
+     * User and rental are attached as references (no SELECT), and message IDs
+     * come from a pooled generator so Hibernate sends the rows as JDBC batches
+     * Unread counters of the recipients and conversation summaries are updated
+     * in the same transaction, and a MessageSentEvent is published for each
+     * message
+     */
+    public void saveMessages(List<PendingMessage> pendingMessages) {
+        List<Message> messages = new ArrayList<>(pendingMessages.size());
+        for (PendingMessage pending : pendingMessages) {
+            Message message = new Message();
+            message.setMessage(pending.getMessage());
+            message.setUser(userRepository.getReferenceById(pending.getUserId()));
+            message.setRental(rentalRepository.getReferenceById(pending.getRentalId()));
+            message.setCreatedAt(pending.getCreatedAt());
+            message.setUpdatedAt(pending.getCreatedAt());
+            messages.add(message);
+        }
+        messageRepository.saveAll(messages);
+
+        // IDs are assigned on persist
+        List<MessageResponse> responses = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            PendingMessage pending = pendingMessages.get(i);
+            responses.add(new MessageResponse(message.getId(), message.getMessage(),
+                    pending.getRentalId(), pending.getRentalName(), pending.getUserId(),
+                    message.getCreatedAt(), message.getUpdatedAt(), message.getReadAt()));
+        }
+
+        // One update per recipient and per conversation, in key order so
+        // concurrent batches lock the rows in the same order
+        Map<Long, Integer> unreadByOwner = new TreeMap<>();
+        Map<ConversationId, ConversationUpdate> conversations = new TreeMap<>(CONVERSATION_ORDER);
+        for (int i = 0; i < responses.size(); i++) {
+            MessageResponse response = responses.get(i);
+            Long ownerId = pendingMessages.get(i).getOwnerId();
+            unreadByOwner.merge(ownerId, 1, Integer::sum);
+            conversations.computeIfAbsent(new ConversationId(response.getRentalId(), response.getUserId()),
+                    id -> new ConversationUpdate(ownerId)).add(response);
+        }
+        unreadByOwner.forEach(inboxCounterRepository::increment);
+        conversations.forEach((id, update) -> conversationRepository.addMessages(id.getRentalId(), id.getUserId(),
+                update.ownerId, update.last.getId(), Conversation.snippet(update.last.getMessage()),
+                update.last.getCreatedAt(), update.count));
+
+        // Listeners only run after commit
+        for (int i = 0; i < responses.size(); i++) {
+            eventPublisher.publishEvent(new MessageSentEvent(responses.get(i), pendingMessages.get(i).getOwnerId()));
+        }
+    }
+
+    /**
+     * Messages of a batch belonging to the same conversation
+     */
+    private static final class ConversationUpdate {
+
+        private final Long ownerId;
+        private MessageResponse last;
+        private int count;
+
+        ConversationUpdate(Long ownerId) {
+            this.ownerId = ownerId;
+        }
+
+        void add(MessageResponse message) {
+            if (last == null || !message.getCreatedAt().isBefore(last.getCreatedAt())) {
+                last = message;
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Get the number of unread messages received by a user
+     * Reads the maintained counter, no message is counted
+     */
+    @Transactional(readOnly = true)
+    public int getUnreadCount(String userEmail) {
+        return inboxCounterRepository.findUnreadCountByEmail(userEmail).orElse(0);
+    }
+
+    /**
+     * Mark received messages as read and update the unread counter
+     * One UPDATE for the messages and one for the counter, whatever the number
+     * of messages
+     *
+     * @return The number of messages marked as read and the remaining unread count
+     */
+    public UnreadCountResponse markAsRead(MarkReadRequest request, String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
+
+        LocalDateTime readAt = LocalDateTime.now();
+        int marked = messageRepository.markReceivedAsRead(user, request.getRentalId(), request.getUpToId(),
+                readAt);
+        if (marked > 0) {
+            inboxCounterRepository.decrement(user.getId(), marked);
+            eventPublisher.publishEvent(
+                    new MessagesReadEvent(user.getId(), request.getRentalId(), request.getUpToId(), readAt));
+        }
+
+        int unread = inboxCounterRepository.findUnreadCountByEmail(userEmail).orElse(0);
+        logger.info("Marked {} messages as read for user {} ({} still unread)", marked, user.getId(), unread);
+        return new UnreadCountResponse(unread, marked);
+    }
+
     /**
      * Get all messages for a user (sent and received)
      * Returns messages where user is either user or rental owner
      */
+    @Transactional(readOnly = true)
     public List<MessageResponse> getUserMessages(String userEmail) {
         logger.info("Retrieving messages for user: {}", userEmail);
 
@@ -127,13 +279,10 @@ public class MessageService {
                     });
 
             // Get messages where user is user or rental owner
-            List<Message> messages = messageRepository.findByUserInvolvement(user);
+            List<MessageResponse> messages = messageRepository.findByUserInvolvement(user);
 
             logger.info("Found {} messages for user: {}", messages.size(), userEmail);
-
-            return messages.stream()
-                    .map(MessageResponse::new)
-                    .collect(Collectors.toList());
+            return messages;
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -144,46 +293,97 @@ public class MessageService {
     }
 
     /**
-     * Get messages by rental ID for authorized users
-     * Only rental owner and message users can see rental messages
+     * Get the version of the messages where a user is involved, without loading
+     * them
      */
-    public List<MessageResponse> getMessagesByRental(Long rentalId, String userEmail) {
-        logger.info("Retrieving messages for rental {} by user: {}", rentalId, userEmail);
+    @Transactional(readOnly = true)
+    public MessageRepository.ListingVersion getUserMessagesVersion(String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
 
-        try {
-            // Find user
-            User user = userRepository.findByEmail(userEmail)
-                    .orElseThrow(() -> {
-                        logger.error("User not found: {}", userEmail);
-                        return new RuntimeException("User not found: " + userEmail);
-                    });
+        return messageRepository.findVersionByUserInvolvement(user);
+    }
 
-            // Find rental
-            Rental rental = rentalRepository.findById(rentalId)
-                    .orElseThrow(() -> {
-                        logger.error("Rental not found: {}", rentalId);
-                        return new RuntimeException("Rental not found with ID: " + rentalId);
-                    });
+    /**
+     * Compute the version of a message listing from its content, as
+     * findVersionByUserInvolvement does in the database
+     */
+    public static MessageRepository.ListingVersion listingVersion(List<MessageResponse> messages) {
+        Long lastId = null;
+        LocalDateTime lastUpdatedAt = null;
+        LocalDateTime lastReadAt = null;
+        for (MessageResponse message : messages) {
+            if (lastId == null || message.getId() > lastId) {
+                lastId = message.getId();
+            }
+            lastUpdatedAt = latest(lastUpdatedAt, message.getUpdatedAt());
+            lastReadAt = latest(lastReadAt, message.getReadAt());
+        }
+        return new ComputedListingVersion(messages.size(), lastId, lastUpdatedAt, lastReadAt);
+    }
+
+    private static LocalDateTime latest(LocalDateTime current, LocalDateTime candidate) {
+        return current == null || (candidate != null && candidate.isAfter(current)) ? candidate : current;
+    }
+
+    private record ComputedListingVersion(long count, Long lastId, LocalDateTime lastUpdatedAt,
+            LocalDateTime lastReadAt) implements MessageRepository.ListingVersion {
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public Long getLastId() {
+            return lastId;
+        }
+
+        @Override
+        public LocalDateTime getLastUpdatedAt() {
+            return lastUpdatedAt;
+        }
+
+        @Override
+        public LocalDateTime getLastReadAt() {
+            return lastReadAt;
+        }
+    }
 
-            // Check authorization - user must be rental owner or have sent messages about
-            // this rental
-            boolean isRentalOwner = rental.getOwner().getEmail().equals(userEmail);
-            boolean hasSentMessages = messageRepository.existsByUserAndRental(user, rental);
+    /**
+     * Get messages by rental ID for authorized users
+     * Only rental owner and message users can see rental messages
+     * Access is checked by the query returning the messages, the user and the
+     * rental are only loaded when it returns nothing
+     */
+    @Transactional(readOnly = true)
+    public List<MessageResponse> getMessagesByRental(Long rentalId, Long userId) {
+        logger.info("Retrieving messages for rental {} by user: {}", rentalId, userId);
 
-            if (!isRentalOwner && !hasSentMessages) {
-                logger.warn("User {} not authorized to view messages for rental {}", userEmail, rentalId);
-                throw new RuntimeException("User not authorized to view messages for this rental");
+        try {
+            List<MessageResponse> messages = new ArrayList<>(
+                    messageRepository.findViewableByRental(rentalId, userId));
+            String rentalName;
+            if (messages.isEmpty()) {
+                // No message yet, no access, no rental or access through archived messages
+                Rental rental = findViewableRental(rentalId, findUser(userId));
+                messages.addAll(messageRepository.findByRental(rental));
+                rentalName = rental.getName();
+            } else {
+                rentalName = messages.get(0).getRentalName();
             }
 
-            // Get messages for this rental
-            List<Message> messages = messageRepository.findByRental(rental);
+            // Then the archived ones (older)
+            Set<Long> hotIds = messages.stream().map(MessageResponse::getId).collect(Collectors.toSet());
+            for (ArchivedMessage archived : messageArchiveService.findByRental(rentalId)) {
+                if (!hotIds.contains(archived.getId())) {
+                    messages.add(toResponse(archived, rentalName));
+                }
+            }
 
             logger.info("Found {} messages for rental {} and user: {}",
-                    messages.size(), rentalId, userEmail);
-
-            return messages.stream()
-                    .map(MessageResponse::new)
-                    .collect(Collectors.toList());
+                    messages.size(), rentalId, userId);
+            return messages;
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -193,39 +393,189 @@ public class MessageService {
         }
     }
 
+    /**
+     * Get one page of the messages about a rental for authorized users
+     * Keyset-paginated on (created_at, id), newest first
+     * Access is checked by the query returning the page, as in getMessagesByRental
+     *
+     * @param cursor Cursor returned by the previous page, null for the first page
+     * @param size   Page size, between 1 and MAX_PAGE_SIZE
+     * @throws IllegalArgumentException if the cursor or the page size is invalid
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<MessageResponse> getMessagesByRentalPage(Long rentalId, Long userId,
+            String cursor, Integer size) {
+        int pageSize = validatePageSize(size);
+        KeysetCursor position = decodeCursor(cursor);
+        logger.info("Retrieving messages page for rental {} by user: {} (size: {}, cursor: {})",
+                rentalId, userId, pageSize, position);
+
+        // Fetch one extra row to know whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+        List<MessageResponse> messages = position == null
+                ? messageRepository.findFirstViewablePageByRental(rentalId, userId, limit)
+                : messageRepository.findViewablePageByRentalAfter(rentalId, userId, position.getCreatedAt(),
+                        position.getId(), limit);
+
+        String rentalName;
+        if (messages.isEmpty()) {
+            // No (more) message, no access, no rental or access through archived messages
+            Rental rental = findViewableRental(rentalId, findUser(userId));
+            messages = position == null
+                    ? messageRepository.findFirstPageByRental(rental, limit)
+                    : messageRepository.findPageByRentalAfter(rental, position.getCreatedAt(), position.getId(),
+                            limit);
+            rentalName = rental.getName();
+        } else {
+            rentalName = messages.get(0).getRentalName();
+        }
+
+        // Archived messages are older than the table ones: only needed once the
+        // table runs out of messages for this rental
+        if (messages.size() < limit.max()) {
+            messages = appendArchived(messages, rentalId, rentalName, position, limit.max());
+        }
+
+        return toPage(messages, pageSize);
+    }
+
+    /**
+     * Get one page of the messages for a user (sent and received)
+     * Keyset-paginated on (created_at, id), newest first
+     *
+     * @param cursor Cursor returned by the previous page, null for the first page
+     * @param size   Page size, between 1 and MAX_PAGE_SIZE
+     * @throws IllegalArgumentException if the cursor or the page size is invalid
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<MessageResponse> getUserMessagesPage(String userEmail, String cursor, Integer size) {
+        int pageSize = validatePageSize(size);
+        KeysetCursor position = decodeCursor(cursor);
+        logger.info("Retrieving messages page for user: {} (size: {}, cursor: {})", userEmail, pageSize, position);
+
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
+
+        // Fetch one extra row to know whether another page follows
+        int limit = pageSize + 1;
+        List<MessageResponse> messages = position == null
+                ? messageRepository.findFirstPageByUserInvolvement(user, limit)
+                : messageRepository.findPageByUserInvolvementAfter(user, position.getCreatedAt(), position.getId(),
+                        limit);
+
+        return toPage(messages, pageSize);
+    }
+
+    /**
+     * Get a page of the conversations of a user (as sender or rental owner),
+     * most recently active first
+     * Served from the conversation summaries, messages are not grouped
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ConversationResponse> getConversationsPage(String userEmail, String cursor,
+            Integer size) {
+        int pageSize = validatePageSize(size);
+        KeysetCursor position = decodeCursor(cursor);
+        logger.info("Retrieving conversations page for user: {} (size: {}, cursor: {})", userEmail, pageSize,
+                position);
+
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
+
+        // Fetch one extra row to know whether another page follows
+        int limit = pageSize + 1;
+        List<ConversationResponse> conversations = position == null
+                ? conversationRepository.findFirstPageByUser(user.getId(), limit)
+                : conversationRepository.findPageByUserAfter(user.getId(), position.getCreatedAt(),
+                        position.getId(), limit);
+
+        boolean hasMore = conversations.size() > pageSize;
+        List<ConversationResponse> items = hasMore ? conversations.subList(0, pageSize) : conversations;
+
+        String nextCursor = null;
+        if (hasMore) {
+            ConversationResponse last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(last.getLastMessageAt(), last.getLastMessageId()).encode();
+        }
+
+        logger.info("Found {} conversations in page (has more: {})", items.size(), hasMore);
+        return new CursorPageResponse<>(items, nextCursor);
+    }
+
+    private static int validatePageSize(Integer size) {
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    private static KeysetCursor decodeCursor(String cursor) {
+        return cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor) : null;
+    }
+
+    /**
+     * Build a page from a result fetched with one extra row
+     */
+    private CursorPageResponse<MessageResponse> toPage(List<MessageResponse> messages, int pageSize) {
+        boolean hasMore = messages.size() > pageSize;
+        List<MessageResponse> items = hasMore ? messages.subList(0, pageSize) : messages;
+
+        String nextCursor = null;
+        if (hasMore) {
+            MessageResponse last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        logger.info("Found {} messages in page (has more: {})", items.size(), hasMore);
+        return new CursorPageResponse<>(items, nextCursor);
+    }
+
+    /**
+     * Find a rental whose messages the user may read
+     * The user must be the rental owner or have sent messages about the rental
+     */
+    private Rental findViewableRental(Long rentalId, User user) {
+        Rental rental = rentalRepository.findById(rentalId)
+                .orElseThrow(() -> {
+                    logger.error("Rental not found: {}", rentalId);
+                    return new RuntimeException("Rental not found with ID: " + rentalId);
+                });
+
+        boolean isRentalOwner = rental.getOwner().getId().equals(user.getId());
+        boolean hasSentMessages = isRentalOwner || messageRepository.existsByUserAndRental(user, rental)
+                || messageArchiveService.existsByUserAndRental(user.getId(), rental.getId());
+
+        if (!isRentalOwner && !hasSentMessages) {
+            logger.warn("User {} not authorized to view messages for rental {}", user.getEmail(), rentalId);
+            throw new RuntimeException("User not authorized to view messages for this rental");
+        }
+        return rental;
+    }
+
     /**
      * Get message by ID for authorized users
      * Only user and rental owner can view the message
+     * Access is checked by the query returning the message
      */
-    public MessageResponse getMessageById(Long messageId, String userEmail) {
-        logger.info("Retrieving message {} for user: {}", messageId, userEmail);
+    @Transactional(readOnly = true)
+    public MessageResponse getMessageById(Long messageId, Long userId) {
+        logger.info("Retrieving message {} for user: {}", messageId, userId);
 
         try {
-            // Find user
-            User user = userRepository.findByEmail(userEmail)
-                    .orElseThrow(() -> {
-                        logger.error("User not found: {}", userEmail);
-                        return new RuntimeException("User not found: " + userEmail);
-                    });
-
-            // Find message
-            Message message = messageRepository.findById(messageId)
-                    .orElseThrow(() -> {
-                        logger.error("Message not found: {}", messageId);
-                        return new RuntimeException("Message not found with ID: " + messageId);
-                    });
-
-            // Check authorization
-            boolean isuser = message.getUser().getEmail().equals(userEmail);
-            boolean isRentalOwner = message.getRental().getOwner().getEmail().equals(userEmail);
+            Optional<MessageResponse> message = messageRepository.findViewableById(messageId, userId);
+            if (message.isPresent()) {
+                logger.info("Successfully retrieved message: {}", messageId);
+                return message.get();
+            }
 
-            if (!isuser && !isRentalOwner) {
-                logger.warn("User {} not authorized to view message {}", userEmail, messageId);
+            if (messageRepository.existsById(messageId)) {
+                logger.warn("User {} not authorized to view message {}", userId, messageId);
                 throw new RuntimeException("User not authorized to view this message");
             }
 
-            logger.info("Successfully retrieved message: {}", messageId);
-            return new MessageResponse(message);
+            // Not in the table anymore, look in the archive
+            return getArchivedMessageById(messageId, findUser(userId));
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -235,6 +585,59 @@ public class MessageService {
         }
     }
 
+    private User findUser(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> {
+                    logger.error("User not found: {}", userId);
+                    return new RuntimeException("User not found: " + userId);
+                });
+    }
+
+    private MessageResponse getArchivedMessageById(Long messageId, User user) {
+        ArchivedMessage archived = messageArchiveService.findById(messageId)
+                .orElseThrow(() -> {
+                    logger.error("Message not found: {}", messageId);
+                    return new RuntimeException("Message not found with ID: " + messageId);
+                });
+
+        if (!archived.getUserId().equals(user.getId()) && !archived.getOwnerId().equals(user.getId())) {
+            logger.warn("User {} not authorized to view archived message {}", user.getId(), messageId);
+            throw new RuntimeException("User not authorized to view this message");
+        }
+
+        String rentalName = rentalRepository.findById(archived.getRentalId()).map(Rental::getName).orElse(null);
+        logger.info("Successfully retrieved archived message: {}", messageId);
+        return toResponse(archived, rentalName);
+    }
+
+    /**
+     * Complete a page of rental messages with archived ones following the
+     * cursor (or the last message of the page)
+     * The archive only reads the blocks that can hold the missing rows
+     */
+    private List<MessageResponse> appendArchived(List<MessageResponse> messages, Long rentalId, String rentalName,
+            KeysetCursor position, int limit) {
+        MessageResponse last = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+        LocalDateTime afterCreatedAt = last != null ? last.getCreatedAt()
+                : position != null ? position.getCreatedAt() : null;
+        Long afterId = last != null ? last.getId() : position != null ? position.getId() : null;
+
+        List<ArchivedMessage> archived = messageArchiveService.findPageByRental(rentalId, afterCreatedAt, afterId,
+                limit - messages.size());
+        if (archived.isEmpty()) {
+            return messages;
+        }
+
+        List<MessageResponse> page = new ArrayList<>(messages);
+        archived.forEach(message -> page.add(toResponse(message, rentalName)));
+        return page;
+    }
+
+    private static MessageResponse toResponse(ArchivedMessage message, String rentalName) {
+        return new MessageResponse(message.getId(), message.getMessage(), message.getRentalId(), rentalName,
+                message.getUserId(), message.getCreatedAt(), message.getUpdatedAt(), message.getReadAt());
+    }
+
     /**
      * Validate message request data
      * Centralized validation logic
@@ -0,0 +1,177 @@
+package com.openclassrooms.chatop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service keeping a pre-serialized snapshot of the rental catalogue response
+ * GET /api/rentals mostly returns the same bytes, so the JSON array is built
+ * once (plain and gzipped) and rebuilt in the background after each committed
+ * rental change
+ */
+@Service
+public class RentalCatalogueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RentalCatalogueService.class);
+
+    private final RentalRepository rentalRepository;
+    private final ObjectMapper objectMapper;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("rental-catalogue-rebuild").daemon().factory());
+
+    // Incremented on every committed rental change
+    private final AtomicLong version = new AtomicLong();
+    // Coalesces bursts of changes into a single rebuild
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    public RentalCatalogueService(RentalRepository rentalRepository, ObjectMapper objectMapper) {
+        this.rentalRepository = rentalRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get the current catalogue snapshot
+     * Built synchronously on first use, then only rebuilt in the background
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (snapshot == null) {
+                rebuild();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Schedule a rebuild once a rental change has been committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        version.incrementAndGet();
+        logger.debug("Rental catalogue changed ({}), scheduling snapshot rebuild", event);
+
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    // Keep serving the previous snapshot, the next change will retry
+                    logger.error("Error rebuilding rental catalogue snapshot", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Load the catalogue and serialize it to JSON and gzipped JSON
+     */
+    private void rebuild() {
+        long targetVersion = version.get();
+        long start = System.nanoTime();
+
+        List<RentalResponse> rentals = rentalRepository.findAllResponses();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(rentals);
+            Snapshot rebuilt = new Snapshot(json, gzip(json), DigestUtils.md5DigestAsHex(json),
+                    targetVersion, rentals.size());
+
+            // Never replace a snapshot with an older one
+            synchronized (this) {
+                if (snapshot == null || snapshot.getVersion() <= targetVersion) {
+                    snapshot = rebuilt;
+                }
+            }
+
+            logger.info("Rental catalogue snapshot rebuilt: {} rentals, {} bytes ({} gzipped) in {} ms",
+                    rentals.size(), json.length, rebuilt.getGzippedJson().length,
+                    (System.nanoTime() - start) / 1_000_000);
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize rental catalogue", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Immutable pre-serialized catalogue response
+     */
+    public static class Snapshot {
+
+        private final byte[] json;
+        private final byte[] gzippedJson;
+        private final String contentHash;
+        private final long version;
+        private final int size;
+
+        public Snapshot(byte[] json, byte[] gzippedJson, String contentHash, long version, int size) {
+            this.json = json;
+            this.gzippedJson = gzippedJson;
+            this.contentHash = contentHash;
+            this.version = version;
+            this.size = size;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzippedJson() {
+            return gzippedJson;
+        }
+
+        /**
+         * MD5 of the JSON bytes, stable across restarts, used as ETag
+         */
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.response.RentalFilterResponse;
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.search.RentalColumns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service handling price and surface range filters over rentals
+ * Backed by an in-memory columnar copy of the rentals built at startup and
+ * updated after each committed rental change, so filters never touch the
+ * database
+ */
+@Service
+public class RentalFilterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RentalFilterService.class);
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final RentalRepository rentalRepository;
+    private final RentalColumns columns = new RentalColumns();
+    // Version of each rental in the columns, see RentalChangedEvent
+    private final Map<Long, Long> versions = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public RentalFilterService(RentalRepository rentalRepository) {
+        this.rentalRepository = rentalRepository;
+    }
+
+    /**
+     * Build the columns once the application has started
+     * A failure (e.g. database not reachable) is retried on the first filter
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Could not build rental columns at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload every rental from the database
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<RentalRepository.RentalVersion> allVersions = rentalRepository.findAllVersions();
+        List<RentalResponse> all = rentalRepository.findAllResponses();
+
+        columns.clear();
+        versions.clear();
+        allVersions.forEach(rental -> versions.put(rental.getId(), rental.getVersion()));
+        for (RentalResponse rental : all) {
+            columns.upsert(rental);
+        }
+        ready = true;
+
+        logger.info("Rental columns built: {} rentals in {} ms", columns.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Keep the columns in sync with committed rental changes
+     * A change older than the one already applied (listeners of concurrent
+     * commits run in any order) is ignored
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onRentalChanged(RentalChangedEvent event) {
+        Long rentalId = event.getRental().getId();
+        if (!event.isNewerThan(versions.get(rentalId))) {
+            logger.debug("Ignoring outdated rental change ({})", event);
+            return;
+        }
+        logger.debug("Updating rental columns ({})", event);
+        versions.put(rentalId, event.getVersion());
+        columns.upsert(event.getRental());
+    }
+
+    /**
+     * Filter rentals on price and surface ranges, bounds included
+     *
+     * @param sort  Comma separated sort keys among price, surface and created_at,
+     *              prefixed with "-" for descending order (e.g. "price,-surface")
+     * @param limit Maximum number of rentals returned, between 1 and MAX_LIMIT
+     * @return The number of matches and the first matching rentals
+     */
+    public RentalFilterResponse filter(BigDecimal minPrice, BigDecimal maxPrice, BigDecimal minSurface,
+            BigDecimal maxSurface, String sort, Integer limit) {
+        int maxResults = limit != null ? limit : DEFAULT_LIMIT;
+        if (maxResults < 1 || maxResults > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (isInverted(minPrice, maxPrice) || isInverted(minSurface, maxSurface)) {
+            throw new IllegalArgumentException("Minimum must not be greater than maximum");
+        }
+        RentalColumns.SortKey[] sortKeys = RentalColumns.SortKey.parseAll(sort);
+
+        if (!ready) {
+            synchronized (this) {
+                if (!ready) {
+                    rebuild();
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        RentalColumns.Result result = columns.filter(toDouble(minPrice), toDouble(maxPrice),
+                toDouble(minSurface), toDouble(maxSurface), sortKeys, maxResults);
+
+        logger.info("Rental filter matched {} of {} rentals in {} µs", result.getTotal(), columns.size(),
+                (System.nanoTime() - start) / 1_000);
+        return new RentalFilterResponse(result.getTotal(), result.getRentals());
+    }
+
+    private static boolean isInverted(BigDecimal min, BigDecimal max) {
+        return min != null && max != null && min.compareTo(max) > 0;
+    }
+
+    private static Double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : null;
+    }
+}
@@ -0,0 +1,143 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.search.InvertedIndex;
+import com.openclassrooms.chatop.search.TextAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service handling full-text search over rental names and descriptions
+ * Backed by an in-process inverted index built at startup and updated after
+ * each committed rental change, so queries never touch the database
+ */
+@Service
+public class RentalSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RentalSearchService.class);
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private final RentalRepository rentalRepository;
+    private final InvertedIndex index;
+
+    // Rentals returned by the search, by ID
+    private final Map<Long, RentalResponse> rentals = new ConcurrentHashMap<>();
+    // Version of each indexed rental, see RentalChangedEvent
+    private final Map<Long, Long> versions = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public RentalSearchService(RentalRepository rentalRepository,
+            @Value("${search.stemming.enabled:true}") boolean stemming) {
+        this.rentalRepository = rentalRepository;
+        this.index = new InvertedIndex(new TextAnalyzer(stemming));
+    }
+
+    /**
+     * Build the index once the application has started
+     * A failure (e.g. database not reachable) is retried on the first search
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuildIndex();
+        } catch (Exception e) {
+            logger.error("Could not build rental search index at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the whole index from the database
+     */
+    public synchronized void rebuildIndex() {
+        long start = System.nanoTime();
+        List<RentalRepository.RentalVersion> allVersions = rentalRepository.findAllVersions();
+        List<RentalResponse> all = rentalRepository.findAllResponses();
+
+        index.clear();
+        rentals.clear();
+        versions.clear();
+        allVersions.forEach(rental -> versions.put(rental.getId(), rental.getVersion()));
+        for (RentalResponse rental : all) {
+            addToIndex(rental);
+        }
+        ready = true;
+
+        logger.info("Rental search index built: {} rentals, {} terms in {} ms",
+                index.size(), index.termCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Keep the index in sync with committed rental changes
+     * A change older than the one already indexed is ignored
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onRentalChanged(RentalChangedEvent event) {
+        Long rentalId = event.getRental().getId();
+        if (!event.isNewerThan(versions.get(rentalId))) {
+            logger.debug("Ignoring outdated rental change ({})", event);
+            return;
+        }
+        logger.debug("Updating rental search index ({})", event);
+        versions.put(rentalId, event.getVersion());
+        addToIndex(event.getRental());
+    }
+
+    private void addToIndex(RentalResponse rental) {
+        rentals.put(rental.getId(), rental);
+        index.index(rental.getId(), rental.getName(), rental.getDescription());
+    }
+
+    /**
+     * Search rentals by the words of their name and description
+     * Rentals matching more (and rarer) query words rank first, words of the
+     * name weigh more than words of the description
+     *
+     * @param query Free text query
+     * @param limit Maximum number of results, between 1 and MAX_LIMIT
+     * @return Matching rentals, best first
+     */
+    public List<RentalResponse> search(String query, Integer limit) {
+        int maxResults = limit != null ? limit : DEFAULT_LIMIT;
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (maxResults < 1 || maxResults > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        if (!ready) {
+            synchronized (this) {
+                if (!ready) {
+                    rebuildIndex();
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        List<RentalResponse> results = index.search(query, maxResults).stream()
+                .map(hit -> rentals.get(hit.getDocumentId()))
+                .filter(Objects::nonNull)
+                .toList();
+
+        logger.info("Rental search '{}' returned {} results in {} µs", query, results.size(),
+                (System.nanoTime() - start) / 1_000);
+        return results;
+    }
+}
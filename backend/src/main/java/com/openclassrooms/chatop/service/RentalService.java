@@ -1,19 +1,33 @@
 package com.openclassrooms.chatop.service;
 
+import com.openclassrooms.chatop.config.CacheConfig;
+import com.openclassrooms.chatop.dto.request.KeysetCursor;
 import com.openclassrooms.chatop.dto.request.RentalRequest;
+import com.openclassrooms.chatop.dto.response.CursorPageResponse;
 import com.openclassrooms.chatop.dto.response.RentalResponse;
 import com.openclassrooms.chatop.entity.Rental;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
 import com.openclassrooms.chatop.entity.User;
 import com.openclassrooms.chatop.repository.RentalRepository;
 import com.openclassrooms.chatop.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service handling rental business logic
@@ -26,28 +40,46 @@ public class RentalService {
 
     private static final Logger logger = LoggerFactory.getLogger(RentalService.class);
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final RentalRepository rentalRepository;
     private final UserRepository userRepository;
+    private final RentalCatalogueService rentalCatalogueService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Rental details by ID. Used directly (not through the transaction-aware
+    // decorator) so a put happens before the check against rentalWrites
+    private final Cache rentalsCache;
+
+    // Incremented after each committed rental change, before its eviction
+    private final AtomicLong rentalWrites = new AtomicLong();
 
-    public RentalService(RentalRepository rentalRepository, UserRepository userRepository) {
+    public RentalService(RentalRepository rentalRepository, UserRepository userRepository,
+            RentalCatalogueService rentalCatalogueService, ApplicationEventPublisher eventPublisher,
+            CacheManager cacheManager) {
         this.rentalRepository = rentalRepository;
         this.userRepository = userRepository;
+        this.rentalCatalogueService = rentalCatalogueService;
+        this.eventPublisher = eventPublisher;
+        Cache cache = cacheManager.getCache(CacheConfig.RENTALS_CACHE);
+        this.rentalsCache = cache instanceof TransactionAwareCacheDecorator decorator
+                ? decorator.getTargetCache()
+                : cache;
     }
 
     /**
      * Get all available rental properties
      * Returns all rentals in the system for browsing
      */
+    @Transactional(readOnly = true)
     public List<RentalResponse> getAllRentals() {
         logger.info("Retrieving all rentals from database");
 
         try {
-            List<Rental> rentals = rentalRepository.findAll();
+            List<RentalResponse> rentals = rentalRepository.findAllResponses();
             logger.info("Found {} rentals in database", rentals.size());
-
-            return rentals.stream()
-                    .map(RentalResponse::new) // Convert Entity to DTO
-                    .collect(Collectors.toList());
+            return rentals;
 
         } catch (Exception e) {
             logger.error("Error retrieving all rentals", e);
@@ -55,10 +87,103 @@ public class RentalService {
         }
     }
 
+    /**
+     * Get the pre-serialized JSON of the whole rental catalogue
+     * Same content as getAllRentals, without a database round-trip or Jackson
+     * serialization in the common case
+     */
+    public RentalCatalogueService.Snapshot getCatalogueSnapshot() {
+        return rentalCatalogueService.getSnapshot();
+    }
+
+    /**
+     * Stream all rentals to the given consumer as they are read from the database
+     * Rows are projected straight into DTOs and never collected in a list, so
+     * memory use does not depend on the size of the catalogue
+     *
+     * @param consumer Receives each rental, typically writing it to the response
+     * @return Number of rentals streamed
+     */
+    @Transactional(readOnly = true)
+    public long streamAllRentals(Consumer<RentalResponse> consumer) {
+        logger.info("Streaming all rentals from database");
+
+        long count = 0;
+        try (Stream<RentalResponse> rentals = rentalRepository.streamAll()) {
+            for (RentalResponse rental : (Iterable<RentalResponse>) rentals::iterator) {
+                consumer.accept(rental);
+                count++;
+            }
+        }
+
+        logger.info("Streamed {} rentals", count);
+        return count;
+    }
+
+    /**
+     * Get one page of rentals using keyset pagination on (created_at, id)
+     * Each page is a bounded index range scan, whatever the size of the catalogue
+     *
+     * @param cursor Opaque cursor returned with the previous page, null for the
+     *               first page
+     * @param size   Page size, between 1 and MAX_PAGE_SIZE
+     * @param sort   "desc" (newest first, default) or "asc"
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<RentalResponse> getRentalsPage(String cursor, Integer size, String sort) {
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        boolean ascending;
+        if (sort == null || sort.equalsIgnoreCase("desc")) {
+            ascending = false;
+        } else if (sort.equalsIgnoreCase("asc")) {
+            ascending = true;
+        } else {
+            throw new IllegalArgumentException("Sort must be 'asc' or 'desc'");
+        }
+
+        KeysetCursor position = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor) : null;
+        logger.info("Retrieving rentals page (size: {}, sort: {}, cursor: {})", pageSize,
+                ascending ? "asc" : "desc", position);
+
+        // Fetch one extra row to know whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+        List<RentalResponse> rentals;
+        if (position == null) {
+            rentals = ascending
+                    ? rentalRepository.findFirstPageAsc(limit)
+                    : rentalRepository.findFirstPageDesc(limit);
+        } else {
+            rentals = ascending
+                    ? rentalRepository.findPageAfterAsc(position.getCreatedAt(), position.getId(), limit)
+                    : rentalRepository.findPageAfterDesc(position.getCreatedAt(), position.getId(), limit);
+        }
+
+        boolean hasMore = rentals.size() > pageSize;
+        List<RentalResponse> items = hasMore ? rentals.subList(0, pageSize) : rentals;
+
+        String nextCursor = null;
+        if (hasMore) {
+            RentalResponse last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        logger.info("Found {} rentals in page (has more: {})", items.size(), hasMore);
+        return new CursorPageResponse<>(items, nextCursor);
+    }
+
     /**
      * Get a specific rental by ID
      * Returns detailed information about a single rental
+     * Served from the rentals cache, evicted once a change to the rental is
+     * committed (see onRentalChanged). Not transactional, so a cache hit never
+     * checks out a connection: a miss runs the repository's read-only
+     * transaction
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public RentalResponse getRentalById(Long id) {
         logger.info("Retrieving rental with ID: {}", id);
 
@@ -67,15 +192,28 @@ public class RentalService {
             throw new IllegalArgumentException("Invalid rental ID");
         }
 
+        RentalResponse cached = rentalsCache.get(id, RentalResponse.class);
+        if (cached != null) {
+            return cached;
+        }
+
         try {
-            Rental rental = rentalRepository.findById(id)
+            long writes = rentalWrites.get();
+            RentalResponse rental = rentalRepository.findResponseById(id)
                     .orElseThrow(() -> {
                         logger.warn("Rental not found with ID: {}", id);
                         return new RuntimeException("Rental not found with ID: " + id);
                     });
 
+            // A change committed since the read may have been evicted before
+            // this put: drop the entry rather than keep a stale row until expiry
+            rentalsCache.put(id, rental);
+            if (rentalWrites.get() != writes) {
+                rentalsCache.evict(id);
+            }
+
             logger.info("Successfully retrieved rental: {} (ID: {})", rental.getName(), id);
-            return new RentalResponse(rental);
+            return rental;
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -118,7 +256,9 @@ public class RentalService {
             Rental savedRental = rentalRepository.save(rental);
             logger.info("Successfully created rental with ID: {} for user: {}", savedRental.getId(), userEmail);
 
-            return new RentalResponse(savedRental);
+            RentalResponse response = new RentalResponse(savedRental);
+            eventPublisher.publishEvent(new RentalChangedEvent(response, savedRental.getVersion(), true));
+            return response;
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -131,6 +271,7 @@ public class RentalService {
     /**
      * Update an existing rental property
      * Only the owner of the rental can perform updates
+     * The cached entry is evicted once the transaction has committed
      */
     public RentalResponse updateRental(Long id, RentalRequest request, String userEmail) {
         logger.info("Updating rental {} for user: {}", id, userEmail);
@@ -143,7 +284,7 @@ public class RentalService {
 
         try {
             // Find the rental to update
-            Rental rental = rentalRepository.findById(id)
+            Rental rental = rentalRepository.findWithOwnerById(id)
                     .orElseThrow(() -> {
                         logger.warn("Rental not found with ID: {}", id);
                         return new RuntimeException("Rental not found with ID: " + id);
@@ -163,11 +304,13 @@ public class RentalService {
             rental.setPicture(request.getPicture());
             rental.setUpdatedAt(LocalDateTime.now());
 
-            // Save updated rental
-            Rental updatedRental = rentalRepository.save(rental);
+            // Save updated rental, flushed so the event carries the incremented version
+            Rental updatedRental = rentalRepository.saveAndFlush(rental);
             logger.info("Successfully updated rental with ID: {}", id);
 
-            return new RentalResponse(updatedRental);
+            RentalResponse response = new RentalResponse(updatedRental);
+            eventPublisher.publishEvent(new RentalChangedEvent(response, updatedRental.getVersion(), false));
+            return response;
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -177,10 +320,23 @@ public class RentalService {
         }
     }
 
+    /**
+     * Evict a rental from the rentals cache once its change is committed
+     * Readers that loaded the rental before the commit see rentalWrites change
+     * and drop their own put
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onRentalChanged(RentalChangedEvent event) {
+        rentalWrites.incrementAndGet();
+        rentalsCache.evict(event.getRental().getId());
+    }
+
     /**
      * Get all rentals owned by a specific user
      * Used for rental management dashboard
      */
+    @Transactional(readOnly = true)
     public List<RentalResponse> getRentalsByOwner(String userEmail) {
         logger.info("Retrieving rentals for owner: {}", userEmail);
 
@@ -193,12 +349,9 @@ public class RentalService {
                     });
 
             // Get rentals by owner
-            List<Rental> rentals = rentalRepository.findByOwner(owner);
+            List<RentalResponse> rentals = rentalRepository.findResponsesByOwnerId(owner.getId());
             logger.info("Found {} rentals for user: {}", rentals.size(), userEmail);
-
-            return rentals.stream()
-                    .map(RentalResponse::new)
-                    .collect(Collectors.toList());
+            return rentals;
 
         } catch (RuntimeException e) {
             throw e; // Re-throw business exceptions
@@ -216,7 +369,7 @@ public class RentalService {
         logger.debug("Checking if user {} owns rental {}", userEmail, rentalId);
 
         try {
-            return rentalRepository.findById(rentalId)
+            return rentalRepository.findWithOwnerById(rentalId)
                     .map(rental -> rental.getOwner().getEmail().equals(userEmail))
                     .orElse(false);
 
@@ -253,12 +406,14 @@ public class RentalService {
     /**
      * Get rental entity by ID (internal use)
      * Used for retrieving existing rental data during updates
+     * Not read-only on purpose: with open-session-in-view the returned entity
+     * stays in the session and is then modified by updateRental
      */
     public Rental getRentalEntityById(Long id) {
         logger.debug("Retrieving rental entity with ID: {}", id);
 
         try {
-            return rentalRepository.findById(id)
+            return rentalRepository.findWithOwnerById(id)
                     .orElse(null);
         } catch (Exception e) {
             logger.error("Error retrieving rental entity with ID: {}", id, e);
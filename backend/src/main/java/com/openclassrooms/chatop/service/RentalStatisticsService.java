@@ -0,0 +1,224 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.dto.response.RentalStatisticsResponse;
+import com.openclassrooms.chatop.dto.response.RentalStatisticsResponse.HistogramBucket;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.stats.LinearHistogram;
+import com.openclassrooms.chatop.stats.QuantileSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service handling rental market statistics
+ * Aggregates are loaded once at startup and then maintained incrementally from
+ * committed rental changes: an update removes the previous values from the
+ * sums, sketches and histograms before adding the new ones. Reading the
+ * statistics never depends on the size of the catalogue.
+ */
+@Service
+public class RentalStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RentalStatisticsService.class);
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double PRICE_BIN_WIDTH = 250;
+    private static final double SURFACE_BIN_WIDTH = 10;
+    private static final int BIN_COUNT = 21;
+
+    private final RentalRepository rentalRepository;
+
+    // Values currently counted, by rental ID: { price, surface }, NaN when missing
+    private final Map<Long, double[]> values = new HashMap<>();
+    // Version of each counted rental, see RentalChangedEvent
+    private final Map<Long, Long> versions = new HashMap<>();
+
+    private QuantileSketch prices;
+    private QuantileSketch pricesPerM2;
+    private LinearHistogram priceHistogram;
+    private LinearHistogram surfaceHistogram;
+    private double priceSum;
+    private double pricePerM2Sum;
+
+    private boolean ready;
+
+    // Built on first read after a change
+    private volatile RentalStatisticsResponse statistics;
+
+    public RentalStatisticsService(RentalRepository rentalRepository) {
+        this.rentalRepository = rentalRepository;
+        reset();
+    }
+
+    /**
+     * Load the statistics once the application has started
+     * A failure (e.g. database not reachable) is retried on the first read
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Could not build rental statistics at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute every aggregate from the database
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<RentalRepository.RentalVersion> allVersions = rentalRepository.findAllVersions();
+        List<RentalResponse> all = rentalRepository.findAllResponses();
+
+        reset();
+        allVersions.forEach(rental -> versions.put(rental.getId(), rental.getVersion()));
+        for (RentalResponse rental : all) {
+            upsert(rental);
+        }
+        ready = true;
+        statistics = null;
+
+        logger.info("Rental statistics built: {} rentals in {} ms", values.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Apply a committed rental change to the aggregates
+     * A change older than the one already counted is ignored
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onRentalChanged(RentalChangedEvent event) {
+        Long rentalId = event.getRental().getId();
+        if (!event.isNewerThan(versions.get(rentalId))) {
+            logger.debug("Ignoring outdated rental change ({})", event);
+            return;
+        }
+        logger.debug("Updating rental statistics ({})", event);
+        versions.put(rentalId, event.getVersion());
+        upsert(event.getRental());
+        statistics = null;
+    }
+
+    /**
+     * Get the rental market statistics
+     */
+    public RentalStatisticsResponse getStatistics() {
+        RentalStatisticsResponse current = statistics;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (!ready) {
+                rebuild();
+            }
+            if (statistics == null) {
+                statistics = buildResponse();
+            }
+            return statistics;
+        }
+    }
+
+    private void reset() {
+        values.clear();
+        versions.clear();
+        prices = new QuantileSketch(RELATIVE_ACCURACY);
+        pricesPerM2 = new QuantileSketch(RELATIVE_ACCURACY);
+        priceHistogram = new LinearHistogram(PRICE_BIN_WIDTH, BIN_COUNT);
+        surfaceHistogram = new LinearHistogram(SURFACE_BIN_WIDTH, BIN_COUNT);
+        priceSum = 0;
+        pricePerM2Sum = 0;
+    }
+
+    private void upsert(RentalResponse rental) {
+        double price = rental.getPrice() != null ? rental.getPrice().doubleValue() : Double.NaN;
+        double surface = rental.getSurface() != null ? rental.getSurface().doubleValue() : Double.NaN;
+
+        double[] previous = values.put(rental.getId(), new double[] { price, surface });
+        if (previous != null) {
+            apply(previous[0], previous[1], -1);
+        }
+        apply(price, surface, 1);
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) the values of one rental
+     */
+    private void apply(double price, double surface, int sign) {
+        boolean hasPrice = !Double.isNaN(price);
+        boolean hasSurface = !Double.isNaN(surface);
+
+        if (hasPrice) {
+            priceSum += sign * price;
+            if (sign > 0) {
+                prices.add(price);
+                priceHistogram.add(price);
+            } else {
+                prices.remove(price);
+                priceHistogram.remove(price);
+            }
+        }
+        if (hasSurface) {
+            if (sign > 0) {
+                surfaceHistogram.add(surface);
+            } else {
+                surfaceHistogram.remove(surface);
+            }
+        }
+        if (hasPrice && hasSurface && surface > 0) {
+            double pricePerM2 = price / surface;
+            pricePerM2Sum += sign * pricePerM2;
+            if (sign > 0) {
+                pricesPerM2.add(pricePerM2);
+            } else {
+                pricesPerM2.remove(pricePerM2);
+            }
+        }
+    }
+
+    private RentalStatisticsResponse buildResponse() {
+        RentalStatisticsResponse response = new RentalStatisticsResponse();
+        response.setCount(values.size());
+        response.setMeanPrice(prices.getCount() > 0 ? toAmount(priceSum / prices.getCount()) : null);
+        response.setMedianPrice(toAmount(prices.quantile(0.5)));
+        response.setMeanPricePerM2(
+                pricesPerM2.getCount() > 0 ? toAmount(pricePerM2Sum / pricesPerM2.getCount()) : null);
+        response.setMedianPricePerM2(toAmount(pricesPerM2.quantile(0.5)));
+        response.setPriceHistogram(toBuckets(priceHistogram));
+        response.setSurfaceHistogram(toBuckets(surfaceHistogram));
+        return response;
+    }
+
+    private static List<HistogramBucket> toBuckets(LinearHistogram histogram) {
+        List<HistogramBucket> buckets = new ArrayList<>(histogram.getBinCount());
+        for (int bin = 0; bin < histogram.getBinCount(); bin++) {
+            BigDecimal from = toBound(bin * histogram.getBinWidth());
+            BigDecimal to = bin < histogram.getBinCount() - 1 ? toBound((bin + 1) * histogram.getBinWidth()) : null;
+            buckets.add(new HistogramBucket(from, to, histogram.getCount(bin)));
+        }
+        return buckets;
+    }
+
+    // Plain notation, so 250 is not serialized as 2.5E+2
+    private static BigDecimal toBound(double value) {
+        return new BigDecimal(BigDecimal.valueOf(value).stripTrailingZeros().toPlainString());
+    }
+
+    private static BigDecimal toAmount(Double value) {
+        return value != null ? BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP) : null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.openclassrooms.chatop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.event.TokensRevokedEvent;
+import com.openclassrooms.chatop.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Token revocation through a per-user token version
+ * Tokens carry the version of their user at issue time ("ver" claim) and are
+ * rejected once it has been incremented. Versions are cached, so checking a
+ * token only reads the database once per user and cache period; on other
+ * instances a revocation takes effect within jwt.token-version.ttl.
+ * Tokens without the "ver" claim (issued before token versions existed) are
+ * not checked and cannot be revoked: they stay valid until they expire.
+ * Streams opened with a revoked token are closed by the TokensRevokedEvent
+ * listeners once the revocation is committed.
+ */
+@Service
+public class TokenVersionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionService.class);
+
+    // Version of deleted users, never issued
+    private static final int UNKNOWN_USER = -1;
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // user ID -> current token version
+    private final Cache<Long, Integer> versions;
+
+    public TokenVersionService(UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+            @Value("${jwt.token-version.max-users:100000}") long maxUsers,
+            @Value("${jwt.token-version.ttl:1m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Check that a token version is still the current version of its user
+     *
+     * @param userId       User ID claim of the token
+     * @param tokenVersion Version claim of the token
+     * @return false if the user's tokens were revoked since or the user no longer exists
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        int current = versions.get(userId,
+                id -> userRepository.findTokenVersionById(id).orElse(UNKNOWN_USER));
+        return current == tokenVersion;
+    }
+
+    /**
+     * Revoke every token issued to a user
+     *
+     * @param email The user's email
+     */
+    @Transactional
+    public void revokeTokens(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found: " + email));
+
+        Long userId = user.getId();
+        int version = user.getTokenVersion() + 1;
+        user.setTokenVersion(version);
+        userRepository.save(user);
+
+        // Cached once committed: invalidating now would let a concurrent check
+        // reload and cache the old version until the ttl expires
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                versions.put(userId, version);
+            }
+        });
+        // Listeners run after the synchronization above: a stream reopened
+        // once closed is checked against the new version
+        eventPublisher.publishEvent(new TokensRevokedEvent(userId, version));
+
+        logger.info("Revoked tokens of user {} (token version {})", user.getId(), user.getTokenVersion());
+    }
+}
@@ -0,0 +1,426 @@
+package com.openclassrooms.chatop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dto.request.RegisterRequest;
+import com.openclassrooms.chatop.dto.response.UserImportEvent;
+import com.openclassrooms.chatop.exceptions.InvalidImportFileException;
+import com.openclassrooms.chatop.exceptions.PasswordHashingBusyException;
+import com.openclassrooms.chatop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user import from an uploaded NDJSON or CSV file
+ * Rows are read as a stream and imported by batches: validation, duplicate
+ * emails (within the file and against the users table, one query per batch),
+ * passwords hashed in parallel, then a single JDBC batch insert. Rejected rows
+ * are reported one by one, the other rows are imported.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final String INSERT_USER = "INSERT INTO users "
+            + "(email, name, password, created_at, updated_at, token_version) VALUES (?, ?, ?, ?, ?, 0)";
+
+    /**
+     * Format of the uploaded file
+     */
+    public enum Format {
+        // One JSON object per line: {"email": ..., "name": ..., "password": ...}
+        NDJSON,
+        // Header line naming the email, name and password columns, then one user per line
+        CSV
+    }
+
+    private final UserRepository userRepository;
+    private final AuthService authService;
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final Set<String> adminEmails;
+    private final int batchSize;
+
+    // Hashes in flight for all imports, the rest of the password pool stays
+    // available for logins
+    private final Semaphore hashingPermits;
+
+    public UserImportService(UserRepository userRepository,
+            AuthService authService,
+            PasswordEncoder passwordEncoder,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            EntityManagerFactory entityManagerFactory,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${admin.emails:}") String adminEmails,
+            @Value("${users.import.batch-size:500}") int batchSize,
+            @Value("${users.import.hashing-parallelism:0}") int hashingParallelism) {
+        this.userRepository = userRepository;
+        this.authService = authService;
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.adminEmails = Arrays.stream(adminEmails.split(","))
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toSet());
+        this.batchSize = batchSize;
+        this.hashingPermits = new Semaphore(hashingParallelism > 0
+                ? hashingParallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Check that a user may import users (admin.emails allowlist)
+     *
+     * @throws RuntimeException if the user is not an administrator
+     */
+    public void checkAdmin(String email) {
+        if (email == null || !adminEmails.contains(email.toLowerCase(Locale.ROOT))) {
+            logger.warn("User {} not authorized to import users", email);
+            throw new RuntimeException("User not authorized to import users");
+        }
+    }
+
+    /**
+     * Import the users of an uploaded file
+     *
+     * @param input    The file content
+     * @param format   The file format
+     * @param listener Receives rejected rows and the progress after each batch
+     * @return The summary of the import
+     * @throws InvalidImportFileException if the CSV header misses a column,
+     *                                     thrown before any listener call
+     * @throws IOException                if the file cannot be read
+     */
+    public UserImportEvent importUsers(Reader input, Format format, Consumer<UserImportEvent> listener)
+            throws IOException {
+        logger.info("Importing users ({}, batch size: {})", format, batchSize);
+        long start = System.nanoTime();
+
+        ImportRun run = new ImportRun(listener);
+        BufferedReader reader = new BufferedReader(input);
+        CsvColumns columns = null;
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && columns == null) {
+                columns = CsvColumns.of(line);
+                continue;
+            }
+
+            run.processed++;
+            try {
+                RegisterRequest request = format == Format.CSV
+                        ? columns.toRequest(line)
+                        : objectMapper.readValue(line, RegisterRequest.class);
+                if (request == null) {
+                    // NDJSON line "null"
+                    run.reject(lineNumber, null, "Unreadable row");
+                    continue;
+                }
+                batch.add(new ImportRow(lineNumber, request));
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                run.reject(lineNumber, null, "Unreadable row");
+                continue;
+            }
+
+            if (batch.size() == batchSize) {
+                importBatch(batch, run);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, run);
+        }
+
+        logger.info("Imported {} users out of {} rows in {} ms", run.imported, run.processed,
+                (System.nanoTime() - start) / 1_000_000);
+        return UserImportEvent.counters(UserImportEvent.SUMMARY, run.processed, run.imported, run.failed);
+    }
+
+    private void importBatch(List<ImportRow> batch, ImportRun run) {
+        // Validation and duplicates within the file
+        List<ImportRow> valid = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(row.request);
+            if (!violations.isEmpty()) {
+                run.reject(row.line, row.request.getEmail(), violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            } else if (!run.emails.add(row.request.getEmail().toLowerCase(Locale.ROOT))) {
+                run.reject(row.line, row.request.getEmail(), "Duplicate email in import");
+            } else {
+                valid.add(row);
+            }
+        }
+
+        // Emails already registered, one query for the batch
+        if (!valid.isEmpty()) {
+            Set<String> existing = userRepository.findExistingEmails(
+                    valid.stream().map(row -> row.request.getEmail()).toList())
+                    .stream()
+                    .map(email -> email.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+            valid.removeIf(row -> {
+                boolean registered = existing.contains(row.request.getEmail().toLowerCase(Locale.ROOT));
+                if (registered) {
+                    run.reject(row.line, row.request.getEmail(), "Email already registered");
+                }
+                return registered;
+            });
+        }
+
+        List<ImportRow> hashed = hashPasswords(valid, run);
+        List<ImportRow> inserted = insert(hashed, run);
+
+        if (!inserted.isEmpty()) {
+            // Rows written with JDBC are unknown to Hibernate: drop cached
+            // findByEmail results (an import may follow a failed login)
+            entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                    .evictQueryRegion(UserRepository.BY_EMAIL_QUERY_REGION);
+            inserted.forEach(row -> authService.evictUser(row.request.getEmail()));
+        }
+
+        run.imported += inserted.size();
+        run.listener.accept(
+                UserImportEvent.counters(UserImportEvent.PROGRESS, run.processed, run.imported, run.failed));
+    }
+
+    /**
+     * Hash the passwords of a batch in parallel
+     * Each hash runs on the bounded password pool (see BoundedPasswordEncoder);
+     * virtual threads only wait for their turn
+     */
+    private List<ImportRow> hashPasswords(List<ImportRow> rows, ImportRun run) {
+        List<Future<String>> hashes = new ArrayList<>(rows.size());
+        try (ExecutorService tasks = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ImportRow row : rows) {
+                hashes.add(tasks.submit(() -> {
+                    hashingPermits.acquire();
+                    try {
+                        return passwordEncoder.encode(row.request.getPassword());
+                    } finally {
+                        hashingPermits.release();
+                    }
+                }));
+            }
+        }
+
+        List<ImportRow> hashed = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            try {
+                row.passwordHash = hashes.get(i).get();
+                hashed.add(row);
+            } catch (ExecutionException e) {
+                run.reject(row.line, row.request.getEmail(), e.getCause() instanceof PasswordHashingBusyException
+                        ? "Server busy, import this row again"
+                        : "Password hashing failed");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while hashing passwords", e);
+            }
+        }
+        return hashed;
+    }
+
+    /**
+     * Insert a batch with a single JDBC batch
+     * If the unique email index rejects it (an email registered meanwhile), the
+     * batch is rolled back and its rows are inserted one by one
+     *
+     * @return The inserted rows
+     */
+    private List<ImportRow> insert(List<ImportRow> rows, ImportRun run) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_USER, rows,
+                    rows.size(), (statement, row) -> {
+                        statement.setString(1, row.request.getEmail());
+                        statement.setString(2, row.request.getName());
+                        statement.setString(3, row.passwordHash);
+                        statement.setTimestamp(4, now);
+                        statement.setTimestamp(5, now);
+                    }));
+            return rows;
+
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("User import batch rejected ({}), inserting its rows one by one", e.getMessage());
+        }
+
+        List<ImportRow> inserted = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            try {
+                jdbcTemplate.update(INSERT_USER, row.request.getEmail(), row.request.getName(), row.passwordHash,
+                        now, now);
+                inserted.add(row);
+            } catch (DataIntegrityViolationException e) {
+                run.reject(row.line, row.request.getEmail(), "Email already registered");
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Row read from the file
+     */
+    private static final class ImportRow {
+
+        private final long line;
+        private final RegisterRequest request;
+        private String passwordHash;
+
+        private ImportRow(long line, RegisterRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+    }
+
+    /**
+     * Counters and emails of an import in progress
+     */
+    private static final class ImportRun {
+
+        private final Consumer<UserImportEvent> listener;
+        // Lower-cased emails seen so far, to reject duplicates within the file
+        private final Set<String> emails = new HashSet<>();
+        private long processed;
+        private long imported;
+        private long failed;
+
+        private ImportRun(Consumer<UserImportEvent> listener) {
+            this.listener = listener;
+        }
+
+        private void reject(long line, String email, String error) {
+            failed++;
+            listener.accept(UserImportEvent.error(line, email, error));
+        }
+    }
+
+    /**
+     * Positions of the email, name and password columns of a CSV file
+     * Fields may be quoted ("..."), with "" for a quote inside a field
+     */
+    private static final class CsvColumns {
+
+        private final int email;
+        private final int name;
+        private final int password;
+
+        private CsvColumns(int email, int name, int password) {
+            this.email = email;
+            this.name = name;
+            this.password = password;
+        }
+
+        static CsvColumns of(String header) {
+            List<String> fields;
+            try {
+                fields = split(header);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidImportFileException("Invalid CSV header: " + e.getMessage());
+            }
+            List<String> columns = fields.stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            int email = columns.indexOf("email");
+            int name = columns.indexOf("name");
+            int password = columns.indexOf("password");
+            if (email < 0 || name < 0 || password < 0) {
+                throw new InvalidImportFileException("CSV header must name the email, name and password columns");
+            }
+            return new CsvColumns(email, name, password);
+        }
+
+        RegisterRequest toRequest(String line) {
+            List<String> fields = split(line);
+            int last = Math.max(email, Math.max(name, password));
+            if (fields.size() <= last) {
+                throw new IllegalArgumentException("Missing CSV fields");
+            }
+            return new RegisterRequest(fields.get(email).trim(), fields.get(name).trim(), fields.get(password));
+        }
+
+        static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted CSV field");
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.openclassrooms.chatop.stats;
+
+/**
+ * Histogram with fixed-width bins starting at zero
+ * Values beyond the last bin are counted in it, negative values in the first.
+ * Counts can be decremented, so an updated value can be removed before its new
+ * value is added. Not thread-safe.
+ */
+public class LinearHistogram {
+
+    private final double binWidth;
+    private final long[] counts;
+
+    public LinearHistogram(double binWidth, int binCount) {
+        if (binWidth <= 0 || binCount < 1) {
+            throw new IllegalArgumentException("Invalid histogram bins");
+        }
+        this.binWidth = binWidth;
+        this.counts = new long[binCount];
+    }
+
+    /**
+     * Add a value
+     */
+    public void add(double value) {
+        counts[bin(value)]++;
+    }
+
+    /**
+     * Remove a value previously added
+     */
+    public void remove(double value) {
+        counts[bin(value)]--;
+    }
+
+    private int bin(double value) {
+        int bin = (int) Math.floor(value / binWidth);
+        return Math.max(0, Math.min(counts.length - 1, bin));
+    }
+
+    public double getBinWidth() {
+        return binWidth;
+    }
+
+    public int getBinCount() {
+        return counts.length;
+    }
+
+    /**
+     * Number of values of a bin
+     */
+    public long getCount(int bin) {
+        return counts[bin];
+    }
+}
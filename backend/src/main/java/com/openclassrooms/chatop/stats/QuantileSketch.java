@@ -0,0 +1,134 @@
+package com.openclassrooms.chatop.stats;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch with a bounded relative error
+ * Positive values are counted in logarithmic buckets: every value of a bucket
+ * is within the relative accuracy of the bucket's representative value. Unlike
+ * t-digest, counts can be decremented exactly, so an updated value can be
+ * removed before its new value is added.
+ * Memory and query cost depend on the value range, not on the number of values.
+ * Not thread-safe.
+ */
+public class QuantileSketch {
+
+    private final double relativeAccuracy;
+    private final double logGamma;
+
+    // bucket index -> number of values
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    // values <= 0, not representable in a logarithmic bucket
+    private long zeroCount;
+    private long count;
+
+    /**
+     * @param relativeAccuracy Maximum relative error of the quantiles, e.g. 0.01
+     */
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+    }
+
+    /**
+     * Add a value
+     */
+    public void add(double value) {
+        if (value > 0) {
+            buckets.merge(index(value), 1L, Long::sum);
+        } else {
+            zeroCount++;
+        }
+        count++;
+    }
+
+    /**
+     * Remove a value previously added
+     */
+    public void remove(double value) {
+        if (value > 0) {
+            int index = index(value);
+            Long bucketCount = buckets.get(index);
+            if (bucketCount == null) {
+                throw new IllegalStateException("Value was not added to the sketch: " + value);
+            }
+            if (bucketCount == 1) {
+                buckets.remove(index);
+            } else {
+                buckets.put(index, bucketCount - 1);
+            }
+        } else {
+            if (zeroCount == 0) {
+                throw new IllegalStateException("Value was not added to the sketch: " + value);
+            }
+            zeroCount--;
+        }
+        count--;
+    }
+
+    /**
+     * Add every value of another sketch with the same relative accuracy
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracies");
+        }
+        for (Map.Entry<Integer, Long> entry : other.buckets.entrySet()) {
+            buckets.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    /**
+     * Estimate a quantile
+     *
+     * @param quantile Between 0 and 1, e.g. 0.5 for the median
+     * @return The estimated value, or null when the sketch is empty
+     */
+    public Double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        long rank = (long) Math.floor(quantile * (count - 1));
+        if (rank < zeroCount) {
+            return 0.0;
+        }
+        long seen = zeroCount;
+        for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+            seen += entry.getValue();
+            if (seen > rank) {
+                return value(entry.getKey());
+            }
+        }
+        return value(buckets.lastKey());
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Number of non-empty buckets, i.e. the memory footprint of the sketch
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    // Value at equal relative distance from both bounds of the bucket
+    private double value(int index) {
+        return 2 * Math.exp(index * logGamma) / (1 + Math.exp(logGamma));
+    }
+}
@@ -0,0 +1,425 @@
+package com.openclassrooms.chatop;
+
+import com.jayway.jsonpath.JsonPath;
+import com.openclassrooms.chatop.dto.request.RentalRequest;
+import com.openclassrooms.chatop.entity.Conversation;
+import com.openclassrooms.chatop.entity.ConversationId;
+import com.openclassrooms.chatop.entity.InboxCounter;
+import com.openclassrooms.chatop.entity.Message;
+import com.openclassrooms.chatop.entity.Rental;
+import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.repository.ConversationRepository;
+import com.openclassrooms.chatop.repository.InboxCounterRepository;
+import com.openclassrooms.chatop.repository.MessageRepository;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.repository.UserRepository;
+import com.openclassrooms.chatop.security.JwtUserPrincipal;
+import com.openclassrooms.chatop.service.AuthService;
+import com.openclassrooms.chatop.service.JwtService;
+import com.openclassrooms.chatop.service.MessageEventService;
+import com.openclassrooms.chatop.service.MessageService;
+import com.openclassrooms.chatop.service.RentalService;
+import com.openclassrooms.chatop.support.SqlStatementCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query-count regression tests
+ * Each endpoint must issue a fixed number of SQL statements whatever the number
+ * of rows it returns: a lazy load per row (N+1) makes these tests fail
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryCountTests {
+
+    private static final String OWNER = "owner@test.com";
+    private static final String TENANT = "tenant@test.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private InboxCounterRepository inboxCounterRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private MessageEventService messageEventService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User owner;
+    private User tenant;
+    private Rental firstRental;
+    private Rental secondRental;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new User(OWNER, "Owner", "password123"));
+        tenant = userRepository.save(new User(TENANT, "Tenant", "password123"));
+        User otherTenant = userRepository.save(new User("other@test.com", "Other", "password123"));
+
+        firstRental = rentalRepository.save(
+                new Rental("First rental", new BigDecimal("45"), new BigDecimal("900"), "Bright flat", owner));
+        secondRental = rentalRepository.save(
+                new Rental("Second rental", new BigDecimal("80"), new BigDecimal("1500"), "Large house", owner));
+
+        // Several messages per rental and per sender, so a per-row lazy load
+        // would show up in the counts
+        for (User sender : new User[] { tenant, otherTenant }) {
+            for (Rental rental : new Rental[] { firstRental, secondRental }) {
+                messageRepository.save(new Message("Is it still available?", sender, rental));
+                Message last = messageRepository.save(new Message("When can I visit it?", sender, rental));
+                conversationRepository.save(conversation(rental, sender, last));
+            }
+        }
+        inboxCounterRepository.save(new InboxCounter(owner.getId(), 8));
+
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @AfterEach
+    void tearDown() {
+        conversationRepository.deleteAll();
+        inboxCounterRepository.deleteAll();
+        messageRepository.deleteAll();
+        rentalRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void inboxListing() throws Exception {
+        // User by email, then one UNION ALL query over sent and received messages
+        assertStatements(2, get("/api/messages").with(user(OWNER)))
+                .andExpect(jsonPath("$.length()").value(8));
+        assertStatements(2, get("/api/messages").with(user(TENANT)))
+                .andExpect(jsonPath("$.length()").value(4));
+    }
+
+    @Test
+    void inboxPage() throws Exception {
+        String body = assertStatements(2, get("/api/messages").param("size", "3").with(user(OWNER)))
+                .andExpect(jsonPath("$.items.length()").value(3))
+                .andExpect(jsonPath("$.has_more").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(body, "$.next_cursor");
+
+        assertStatements(2, get("/api/messages").param("size", "3").param("cursor", cursor).with(user(OWNER)))
+                .andExpect(jsonPath("$.items.length()").value(3));
+    }
+
+    @Test
+    void inboxNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/messages").with(user(OWNER)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // User by email, then the aggregate version of the inbox
+        SqlStatementCounter.reset();
+        mockMvc.perform(get("/api/messages").header(HttpHeaders.IF_NONE_MATCH, etag).with(user(OWNER)))
+                .andExpect(status().isNotModified());
+        assertEquals(2, SqlStatementCounter.count(),
+                () -> "Unexpected SQL statements: " + SqlStatementCounter.statements());
+
+        // Marking messages as read changes the listing, and its ETag
+        mockMvc.perform(post("/api/messages/read").with(user(OWNER))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isOk());
+        String readEtag = mockMvc.perform(get("/api/messages").header(HttpHeaders.IF_NONE_MATCH, etag)
+                .with(user(OWNER)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/messages").header(HttpHeaders.IF_NONE_MATCH, readEtag).with(user(OWNER)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void rentalMessagesAsOwner() throws Exception {
+        // Messages, with the authorization check on the user ID from the token
+        // in the same statement
+        assertStatements(1, get("/api/messages/rental/" + firstRental.getId()).with(user(principal(owner))))
+                .andExpect(jsonPath("$.length()").value(4));
+        assertStatements(1, get("/api/messages/rental/" + firstRental.getId()).param("size", "2")
+                .with(user(principal(owner))))
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        // Principal without the ID: resolved once through the user details cache
+        assertStatements(2, get("/api/messages/rental/" + firstRental.getId()).with(user(OWNER)));
+        assertStatements(1, get("/api/messages/rental/" + firstRental.getId()).with(user(OWNER)));
+    }
+
+    @Test
+    void rentalMessagesAsSender() throws Exception {
+        assertStatements(1, get("/api/messages/rental/" + firstRental.getId()).with(user(principal(tenant))))
+                .andExpect(jsonPath("$.length()").value(4));
+    }
+
+    @Test
+    void rentalMessagesDenied() throws Exception {
+        User stranger = userRepository.save(new User("stranger@test.com", "Stranger", "password123"));
+        mockMvc.perform(get("/api/messages/rental/" + firstRental.getId()).with(user(stranger.getEmail())))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void messageById() {
+        Long messageId = messageRepository.findAll().get(0).getId();
+
+        // Message, with the authorization check in the same statement
+        SqlStatementCounter.reset();
+        assertEquals(messageId, messageService.getMessageById(messageId, owner.getId()).getId());
+        assertEquals(1, SqlStatementCounter.count(),
+                () -> "Unexpected SQL statements: " + SqlStatementCounter.statements());
+    }
+
+    @Test
+    void sendMessage() throws Exception {
+        // User, rental, insert, owner's unread counter, conversation
+        assertStatements(5, post("/api/messages").with(user(TENANT))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"rental_id\": " + secondRental.getId() + ", \"user_id\": " + tenant.getId()
+                        + ", \"message\": \"Is the garden shared?\"}"));
+
+        Conversation conversation = conversationRepository
+                .findById(new ConversationId(secondRental.getId(), tenant.getId())).orElseThrow();
+        assertEquals(3, conversation.getMessageCount());
+        assertEquals("Is the garden shared?", conversation.getLastMessage());
+    }
+
+    @Test
+    void conversations() throws Exception {
+        // User by email, then one UNION ALL query over both sides of the conversations
+        String body = assertStatements(2, get("/api/messages/conversations").param("size", "3").with(user(OWNER)))
+                .andExpect(jsonPath("$.items.length()").value(3))
+                .andExpect(jsonPath("$.items[0].message_count").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(body, "$.next_cursor");
+
+        assertStatements(2, get("/api/messages/conversations").param("size", "3").param("cursor", cursor)
+                .with(user(OWNER)))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.has_more").value(false));
+        assertStatements(2, get("/api/messages/conversations").with(user(TENANT)))
+                .andExpect(jsonPath("$.items.length()").value(2));
+    }
+
+    @Test
+    void messageSearch() throws Exception {
+        // First search: user by email, then the inbox loaded into the user's partition
+        assertStatements(2, get("/api/messages/search").param("q", "visit").with(user(OWNER)))
+                .andExpect(jsonPath("$.length()").value(4));
+
+        // Following searches and new messages never read the messages table
+        assertStatements(1, get("/api/messages/search").param("q", "available").with(user(OWNER)))
+                .andExpect(jsonPath("$.length()").value(4));
+        mockMvc.perform(post("/api/messages").with(user(TENANT))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"rental_id\": " + firstRental.getId() + ", \"user_id\": " + tenant.getId()
+                        + ", \"message\": \"Can I visit it on Saturday?\"}"))
+                .andExpect(status().isOk());
+        assertStatements(1, get("/api/messages/search").param("q", "visit saturday").with(user(OWNER)))
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].message").value("Can I visit it on Saturday?"));
+    }
+
+    @Test
+    void unreadCount() throws Exception {
+        // Counter joined with the user, no message counted
+        assertStatements(1, get("/api/messages/unread-count").with(user(OWNER)))
+                .andExpect(jsonPath("$.unread_count").value(8));
+    }
+
+    @Test
+    void markAsRead() throws Exception {
+        // Loads the owner's search partition, kept in sync by the mark-as-read event
+        mockMvc.perform(get("/api/messages/search").param("q", "visit").with(user(OWNER)))
+                .andExpect(jsonPath("$[*].read_at", everyItem(nullValue())));
+
+        // User, one update of the messages, counter decrement, counter
+        assertStatements(4, post("/api/messages/read").with(user(OWNER))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"rental_id\": " + firstRental.getId() + "}"))
+                .andExpect(jsonPath("$.marked").value(4))
+                .andExpect(jsonPath("$.unread_count").value(4));
+        mockMvc.perform(get("/api/messages/rental/" + firstRental.getId()).with(user(principal(owner))))
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[*].read_at", everyItem(notNullValue())));
+        mockMvc.perform(get("/api/messages/rental/" + secondRental.getId()).with(user(principal(owner))))
+                .andExpect(jsonPath("$[*].read_at", everyItem(nullValue())));
+
+        // Already read messages are not counted twice
+        assertStatements(4, post("/api/messages/read").with(user(OWNER))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(jsonPath("$.marked").value(4))
+                .andExpect(jsonPath("$.unread_count").value(0));
+        mockMvc.perform(get("/api/messages/search").param("q", "visit").with(user(OWNER)))
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[*].read_at", everyItem(notNullValue())));
+    }
+
+    @Test
+    void userDetailsCache() {
+        // Loaded once, then served from the user details cache
+        SqlStatementCounter.reset();
+        authService.loadUserByUsername(OWNER);
+        assertEquals(1, SqlStatementCounter.count());
+
+        SqlStatementCounter.reset();
+        assertEquals(OWNER, authService.loadUserByUsername(OWNER).getUsername());
+        assertEquals("password123", authService.loadUserByUsername(OWNER).getPassword());
+        assertEquals(0, SqlStatementCounter.count(),
+                () -> "Unexpected SQL statements: " + SqlStatementCounter.statements());
+    }
+
+    @Test
+    void logoutRevokesTokens() throws Exception {
+        String bearer = "Bearer " + jwtService.generateToken(owner);
+        mockMvc.perform(get("/api/auth/me").header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isOk());
+        messageEventService.subscribe(OWNER);
+        assertEquals(1, openStreams());
+
+        mockMvc.perform(post("/api/auth/logout").header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isNoContent());
+        // Streams opened with the revoked token are closed
+        assertEquals(0, openStreams());
+
+        // The version cached before the logout is replaced once it is committed
+        mockMvc.perform(get("/api/auth/me").header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/auth/me").header(HttpHeaders.AUTHORIZATION,
+                "Bearer " + jwtService.generateToken(userRepository.findById(owner.getId()).orElseThrow())))
+                .andExpect(status().isOk());
+    }
+
+    private int openStreams() {
+        return (int) meterRegistry.get("messages.events.connections").gauge().value();
+    }
+
+    @Test
+    void rentalDetails() throws Exception {
+        assertStatements(1, get("/api/rentals/" + firstRental.getId()).with(user(TENANT)));
+    }
+
+    @Test
+    void rentalDetailsCache() throws Exception {
+        assertStatements(1, get("/api/rentals/" + firstRental.getId()).with(user(TENANT)));
+
+        // A cache hit does not even check out a connection
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long connections = statistics.getConnectCount();
+        long transactions = statistics.getTransactionCount();
+        assertStatements(0, get("/api/rentals/" + firstRental.getId()).with(user(TENANT)));
+        assertEquals(connections, statistics.getConnectCount());
+        assertEquals(transactions, statistics.getTransactionCount());
+
+        // Evicted once the update is committed, the next read loads the new row
+        rentalService.updateRental(firstRental.getId(), new RentalRequest("Renamed rental",
+                new BigDecimal("45"), new BigDecimal("950"), "Bright flat", null), OWNER);
+        assertStatements(1, get("/api/rentals/" + firstRental.getId()).with(user(TENANT)))
+                .andExpect(jsonPath("$.name").value("Renamed rental"));
+    }
+
+    @Test
+    void rentalPage() throws Exception {
+        assertStatements(1, get("/api/rentals").param("size", "1").with(user(TENANT)));
+    }
+
+    @Test
+    void ownerRentals() throws Exception {
+        // User by email, then the owner's rentals
+        assertStatements(2, get("/api/rentals/user").with(user(OWNER)));
+    }
+
+    @Test
+    void userDetails() throws Exception {
+        assertStatements(1, get("/api/user/" + owner.getId()).with(user(TENANT)));
+    }
+
+    @Test
+    void currentUser() throws Exception {
+        assertStatements(1, get("/api/auth/me").with(user(OWNER)));
+    }
+
+    private static JwtUserPrincipal principal(User user) {
+        return new JwtUserPrincipal(user.getId(), user.getEmail(), user.getName());
+    }
+
+    private static Conversation conversation(Rental rental, User sender, Message last) {
+        Conversation conversation = new Conversation();
+        conversation.setRentalId(rental.getId());
+        conversation.setUserId(sender.getId());
+        conversation.setOwnerId(rental.getOwner().getId());
+        conversation.setLastMessageId(last.getId());
+        conversation.setLastMessage(last.getMessage());
+        conversation.setLastMessageAt(last.getCreatedAt());
+        conversation.setMessageCount(2);
+        return conversation;
+    }
+
+    private ResultActions assertStatements(int expected, RequestBuilder request) throws Exception {
+        SqlStatementCounter.reset();
+        ResultActions result = mockMvc.perform(request).andExpect(status().isOk());
+        assertEquals(expected, SqlStatementCounter.count(),
+                () -> "Unexpected SQL statements: " + SqlStatementCounter.statements());
+        return result;
+    }
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.chatop;
+
+import com.openclassrooms.chatop.entity.Rental;
+import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.repository.UserRepository;
+import com.openclassrooms.chatop.support.SqlStatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads through the Hibernate second-level and query caches after updates
+ * made through JPA
+ * The test profile disables both caches for the statement counts of
+ * QueryCountTests; they are enabled here as in production.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true"
+})
+@ActiveProfiles("test")
+class SecondLevelCacheTests {
+
+    private static final String OWNER = "owner@test.com";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private User owner;
+    private Rental rental;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        owner = userRepository.save(new User(OWNER, "Owner", "password123"));
+        rental = rentalRepository.save(
+                new Rental("First rental", new BigDecimal("45"), new BigDecimal("900"), "Bright flat", owner));
+    }
+
+    @AfterEach
+    void tearDown() {
+        rentalRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void updatedRentalIsRead() {
+        assertCached(() -> rentalRepository.findById(rental.getId()).orElseThrow());
+
+        transaction.executeWithoutResult(status -> rentalRepository.findById(rental.getId()).orElseThrow()
+                .setPrice(new BigDecimal("1000")));
+        assertEquals(0, new BigDecimal("1000").compareTo(
+                rentalRepository.findById(rental.getId()).orElseThrow().getPrice()));
+
+        // Detached copy merged by save
+        Rental detached = rentalRepository.findById(rental.getId()).orElseThrow();
+        detached.setName("Renamed rental");
+        rentalRepository.save(detached);
+        assertEquals("Renamed rental", rentalRepository.findById(rental.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void updatedUserIsRead() {
+        assertCached(() -> userRepository.findByEmail(OWNER).orElseThrow());
+        assertCached(() -> userRepository.findById(owner.getId()).orElseThrow());
+
+        transaction.executeWithoutResult(status -> userRepository.findById(owner.getId()).orElseThrow()
+                .setPassword("new-password"));
+        assertEquals("new-password", userRepository.findByEmail(OWNER).orElseThrow().getPassword());
+        assertEquals("new-password", userRepository.findById(owner.getId()).orElseThrow().getPassword());
+
+        // The cached query result for the old email is invalidated with the
+        // users table
+        User detached = userRepository.findById(owner.getId()).orElseThrow();
+        detached.setEmail("renamed@test.com");
+        detached.setName("Renamed");
+        userRepository.save(detached);
+        assertTrue(userRepository.findByEmail(OWNER).isEmpty());
+        assertEquals("Renamed", userRepository.findByEmail("renamed@test.com").orElseThrow().getName());
+        assertEquals("renamed@test.com", userRepository.findById(owner.getId()).orElseThrow().getEmail());
+    }
+
+    /**
+     * Check that a read is answered from the caches once they are filled, so
+     * the reads after an update do go through them
+     */
+    private static void assertCached(Supplier<?> read) {
+        read.get();
+        SqlStatementCounter.reset();
+        read.get();
+        assertEquals(0, SqlStatementCounter.count(),
+                () -> "Unexpected SQL statements: " + SqlStatementCounter.statements());
+    }
+}
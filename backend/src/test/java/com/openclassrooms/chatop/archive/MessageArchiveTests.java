@@ -0,0 +1,114 @@
+package com.openclassrooms.chatop.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archive segments written, reloaded from disk and read back
+ * Messages 1 to 20 alternate between rentals 1 and 2; the second segment
+ * repeats messages 8 to 10, as after a crash between the segment write and
+ * the delete from the table
+ */
+class MessageArchiveTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void readBackAfterReload() throws IOException {
+        MessageArchive written = new MessageArchive(directory, objectMapper, 4);
+        written.append(messages(1, 10));
+        written.append(messages(8, 20));
+        // Segment written without its index: an interrupted write, ignored
+        Files.write(directory.resolve("segment-000003.ndjson.gz"), new byte[] { 1, 2, 3 });
+
+        MessageArchive archive = new MessageArchive(directory, objectMapper, 4);
+        archive.load();
+        assertEquals(2, archive.segmentCount());
+
+        // Each message once, newest first
+        List<Long> expected = List.of(19L, 17L, 15L, 13L, 11L, 9L, 7L, 5L, 3L, 1L);
+        assertEquals(expected, ids(archive.findByRental(1)));
+
+        assertEquals(9L, archive.findById(9).orElseThrow().getId());
+        assertEquals("Message 9", archive.findById(9).orElseThrow().getMessage());
+        assertTrue(archive.findById(99).isEmpty());
+
+        assertTrue(archive.existsByUserAndRental(101, 1));
+        assertFalse(archive.existsByUserAndRental(101, 3));
+    }
+
+    @Test
+    void pagesFollowThePosition() throws IOException {
+        MessageArchive archive = new MessageArchive(directory, objectMapper, 4);
+        archive.append(messages(1, 10));
+        archive.append(messages(8, 20));
+
+        List<Long> pages = new ArrayList<>();
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        while (true) {
+            List<ArchivedMessage> page = archive.findPageByRental(2, afterCreatedAt, afterId, 3);
+            if (page.isEmpty()) {
+                break;
+            }
+            pages.addAll(ids(page));
+            ArchivedMessage last = page.get(page.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getId();
+        }
+        assertEquals(List.of(20L, 18L, 16L, 14L, 12L, 10L, 8L, 6L, 4L, 2L), pages);
+
+        assertTrue(archive.findPageByRental(3, null, null, 3).isEmpty());
+    }
+
+    @Test
+    void readCopyWins() throws IOException {
+        MessageArchive archive = new MessageArchive(directory, objectMapper, 4);
+        archive.append(messages(1, 10));
+        // Message 6 marked as read while its first copy was written, archived again
+        ArchivedMessage unread = archive.findById(6).orElseThrow();
+        LocalDateTime readAt = START.plusDays(1);
+        archive.append(List.of(new ArchivedMessage(unread.getId(), unread.getRentalId(), unread.getUserId(),
+                unread.getOwnerId(), unread.getMessage(), unread.getCreatedAt(), unread.getUpdatedAt(), readAt)));
+
+        assertEquals(readAt, archive.findById(6).orElseThrow().getReadAt());
+
+        List<ArchivedMessage> messages = archive.findByRental(2);
+        assertEquals(List.of(10L, 8L, 6L, 4L, 2L), ids(messages));
+        assertEquals(readAt, messages.get(2).getReadAt());
+
+        List<ArchivedMessage> page = archive.findPageByRental(2, null, null, 3);
+        assertEquals(List.of(10L, 8L, 6L), ids(page));
+        assertEquals(readAt, page.get(2).getReadAt());
+    }
+
+    private static List<ArchivedMessage> messages(long firstId, long lastId) {
+        return LongStream.rangeClosed(firstId, lastId)
+                .mapToObj(id -> new ArchivedMessage(id, id % 2 == 1 ? 1L : 2L, 100 + id % 3, 50L,
+                        "Message " + id, START.plusMinutes(id), START.plusMinutes(id), null))
+                .toList();
+    }
+
+    private static List<Long> ids(List<ArchivedMessage> messages) {
+        return messages.stream().map(ArchivedMessage::getId).toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.openclassrooms.chatop.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.entity.Message;
+import com.openclassrooms.chatop.entity.Rental;
+import com.openclassrooms.chatop.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * In-process H2 database (MySQL mode) mapped by Hibernate without Spring, for
+ * the JPA baselines of the benchmarks
+ * H2 answers in the benchmark JVM, without network round trip or disk I/O:
+ * its timings only indicate the cost of the JPA path, not MySQL latencies.
+ */
+final class H2Database {
+
+    static final long OWNER_ID = 1L;
+
+    private H2Database() {
+    }
+
+    /**
+     * Create an empty schema from the entity mappings, with a single user
+     * owning every rental
+     */
+    static SessionFactory create(String name) {
+        ((Logger) LoggerFactory.getLogger("org.hibernate")).setLevel(Level.ERROR);
+        SessionFactory sessionFactory = new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Rental.class)
+                .addAnnotatedClass(Message.class)
+                // H2 would otherwise return the cached result of a repeated
+                // query on unchanged tables
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:" + name
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create")
+                .setProperty(AvailableSettings.JAKARTA_VALIDATION_MODE, "none")
+                // Every read goes to the database, as on a cache miss
+                .setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false")
+                .buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> session.doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO users "
+                    + "(id, email, name, password, created_at, updated_at, token_version) "
+                    + "VALUES (?, 'owner@test.com', 'Owner', 'password', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0)")) {
+                insert.setLong(1, OWNER_ID);
+                insert.executeUpdate();
+            }
+        }));
+        return sessionFactory;
+    }
+
+    /**
+     * Insert rentals with their IDs, in JDBC batches
+     */
+    static void insertRentals(SessionFactory sessionFactory, List<RentalResponse> rentals) {
+        sessionFactory.inTransaction(session -> session.doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO rentals "
+                    + "(id, name, surface, price, picture, description, owner_id, created_at, updated_at, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)")) {
+                int pending = 0;
+                for (RentalResponse rental : rentals) {
+                    insert.setLong(1, rental.getId());
+                    insert.setString(2, rental.getName());
+                    insert.setBigDecimal(3, rental.getSurface());
+                    insert.setBigDecimal(4, rental.getPrice());
+                    insert.setString(5, rental.getPicture());
+                    insert.setString(6, rental.getDescription());
+                    insert.setLong(7, OWNER_ID);
+                    insert.setTimestamp(8, Timestamp.valueOf(rental.getCreatedAt()));
+                    insert.setTimestamp(9, Timestamp.valueOf(rental.getCreatedAt()));
+                    insert.addBatch();
+                    if (++pending == 1_000) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                insert.executeBatch();
+            }
+        }));
+    }
+
+    /**
+     * Insert messages about a rental, sent by the owner, in JDBC batches
+     */
+    static void insertMessages(SessionFactory sessionFactory, long rentalId, long firstId, int count,
+            LocalDateTime start) {
+        sessionFactory.inTransaction(session -> session.doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO messages "
+                    + "(id, rental_id, user_id, message, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < count; i++) {
+                    Timestamp createdAt = Timestamp.valueOf(start.plusMinutes(i));
+                    insert.setLong(1, firstId + i);
+                    insert.setLong(2, rentalId);
+                    insert.setLong(3, OWNER_ID);
+                    insert.setString(4, "Message " + i + " about the rental, is it still available?");
+                    insert.setTimestamp(5, createdAt);
+                    insert.setTimestamp(6, createdAt);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }));
+    }
+}
@@ -0,0 +1,160 @@
+package com.openclassrooms.chatop.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.openclassrooms.chatop.repository.UserRepository;
+import com.openclassrooms.chatop.security.JwtAuthenticationFilter;
+import com.openclassrooms.chatop.security.JwtUserPrincipal;
+import com.openclassrooms.chatop.service.AuthService;
+import com.openclassrooms.chatop.service.JwtService;
+import com.openclassrooms.chatop.service.TokenVersionService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per-request cost of JWT authentication in JwtAuthenticationFilter
+ * The token carries the identity claims and is authenticated statelessly;
+ * its version is checked against a token version cache over a stubbed
+ * repository, so only token handling is measured. "legacy" replays the
+ * former path (key rebuilt and token parsed three times).
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.openclassrooms.chatop.benchmark.JwtFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+    private static final String EMAIL = "owner@test.com";
+    private static final long USER_ID = 1L;
+
+    // Size of the verified token cache, 0 verifies every request
+    @Param({ "0", "10000" })
+    public long verifiedCacheSize;
+
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup
+    public void setUp() throws ServletException, IOException {
+        // Logging is not part of the measured cost
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        JwtService jwtService = new JwtService(SECRET, 3_600_000L, verifiedCacheSize, Duration.ofMinutes(5));
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtService", jwtService);
+        ReflectionTestUtils.setField(filter, "authService", new StubAuthService());
+        ReflectionTestUtils.setField(filter, "tokenVersionService", stubTokenVersionService());
+        ReflectionTestUtils.setField(filter, "stateless", true);
+
+        com.openclassrooms.chatop.entity.User user = new com.openclassrooms.chatop.entity.User(EMAIL, "Owner", "");
+        user.setId(USER_ID);
+        token = jwtService.generateToken(user);
+
+        // Measure the stateless path: the user must come from the token claims
+        Object authentication = filter();
+        if (!(authentication instanceof Authentication auth && auth.getPrincipal() instanceof JwtUserPrincipal)) {
+            throw new IllegalStateException("Token not authenticated from its claims: " + authentication);
+        }
+    }
+
+    @Benchmark
+    public Object filter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/messages");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    @Benchmark
+    public Object legacy() {
+        // validateToken: parse, then parse again in isTokenExpired
+        Claims claims = parseWithNewKey(token);
+        boolean expired = parseWithNewKey(token).getExpiration().before(new Date());
+        // getUsernameFromToken: third parse
+        return expired ? claims : parseWithNewKey(token).getSubject();
+    }
+
+    private static Claims parseWithNewKey(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    /**
+     * Token version check without database, the version is cached after the
+     * first request as in production
+     */
+    private static TokenVersionService stubTokenVersionService() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findTokenVersionById(USER_ID)).thenReturn(Optional.of(0));
+        return new TokenVersionService(userRepository, event -> { }, 1_000, Duration.ofMinutes(5));
+    }
+
+    /**
+     * User lookup without database, only used by tokens without identity claims
+     */
+    private static class StubAuthService extends AuthService {
+
+        private final UserDetails user = User.withUsername(EMAIL).password("").authorities("USER").build();
+
+        StubAuthService() {
+            super(null, null, null, new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
+        }
+
+        @Override
+        public UserDetails loadUserByUsername(String email) {
+            return user;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
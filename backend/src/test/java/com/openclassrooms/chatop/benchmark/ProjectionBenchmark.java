@@ -0,0 +1,148 @@
+package com.openclassrooms.chatop.benchmark;
+
+import com.openclassrooms.chatop.dto.response.MessageResponse;
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.entity.Message;
+import com.openclassrooms.chatop.entity.Rental;
+import com.openclassrooms.chatop.repository.MessageRepository;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Allocation per request of the rental and message read paths on H2 (see
+ * H2Database): "entity" replays the former path (managed entities loaded in
+ * a read-write transaction, then copied into DTOs), "projection" the JPQL
+ * constructor projections of RentalRepository and MessageRepository in a
+ * read-only transaction. Compare gc.alloc.rate.norm (bytes per operation);
+ * timings on an in-process H2 are only indicative.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.openclassrooms.chatop.benchmark.ProjectionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final long RENTAL_ID = 1L;
+
+    // Catalogue size (getAllRentals), and messages about the first rental
+    // (getMessagesByRental)
+    @Param({ "100", "1000" })
+    public int rows;
+
+    private SessionFactory database;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<RentalResponse> rentals = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            rentals.add(new RentalResponse((long) i + 1, "Rental " + i, BigDecimal.valueOf(20 + i % 100),
+                    BigDecimal.valueOf(500 + i % 2_000), "http://localhost/pictures/" + i + ".jpg",
+                    "Bright flat close to the city center, rental " + i, H2Database.OWNER_ID,
+                    start.plusMinutes(i), null));
+        }
+
+        database = H2Database.create("projection-" + rows);
+        H2Database.insertRentals(database, rentals);
+        H2Database.insertMessages(database, RENTAL_ID, 1, rows, start);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<RentalResponse> entityAllRentals() {
+        return inTransaction(false, session -> session.createSelectionQuery("FROM Rental", Rental.class)
+                .getResultList().stream()
+                .map(RentalResponse::new)
+                .toList());
+    }
+
+    @Benchmark
+    public List<RentalResponse> projectionAllRentals() {
+        return inTransaction(true, session -> session
+                .createSelectionQuery(RentalRepository.RESPONSE_SELECT, RentalResponse.class)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<MessageResponse> entityRentalMessages() {
+        return inTransaction(false, session -> {
+            Rental rental = session.getReference(Rental.class, RENTAL_ID);
+            return session.createSelectionQuery(
+                            "FROM Message m WHERE m.rental = :rental ORDER BY m.createdAt DESC", Message.class)
+                    .setParameter("rental", rental)
+                    .getResultList().stream()
+                    .map(MessageResponse::new)
+                    .toList();
+        });
+    }
+
+    @Benchmark
+    public List<MessageResponse> projectionRentalMessages() {
+        return inTransaction(true, session -> session
+                .createSelectionQuery(
+                        MessageRepository.RESPONSE_SELECT + "WHERE r = :rental ORDER BY m.createdAt DESC",
+                        MessageResponse.class)
+                .setParameter("rental", session.getReference(Rental.class, RENTAL_ID))
+                .getResultList());
+    }
+
+    /**
+     * Run a read in its own session and transaction, read-only as with
+     * {@code @Transactional(readOnly = true)}: no snapshots, no flush
+     */
+    private <T> T inTransaction(boolean readOnly, Function<Session, T> read) {
+        try (Session session = database.openSession()) {
+            if (readOnly) {
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+            }
+            Transaction transaction = session.beginTransaction();
+            T result = read.apply(session);
+            transaction.commit();
+            return result;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProjectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,154 @@
+package com.openclassrooms.chatop.benchmark;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.search.RentalColumns;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a rental filter request on RentalColumns: range scan, then the
+ * first page of matches in sort order. "legacy" replays the former
+ * selection (every match boxed and fully sorted) on the same price column.
+ * The "jpql" baselines run the equivalent count and page queries on the
+ * same rentals in an in-process H2 database (see H2Database): indicative
+ * only, a MySQL server adds network round trips and its own plans.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.openclassrooms.chatop.benchmark.RentalColumnsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RentalColumnsBenchmark {
+
+    private static final int LIMIT = 20;
+
+    @Param({ "10000", "100000" })
+    public int rentals;
+
+    private RentalColumns columns;
+    private RentalColumns.SortKey[] sort;
+    private double[] prices;
+    private SessionFactory database;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        columns = new RentalColumns();
+        prices = new double[rentals];
+        List<RentalResponse> all = new ArrayList<>(rentals);
+        for (int i = 0; i < rentals; i++) {
+            BigDecimal price = BigDecimal.valueOf(300 + random.nextInt(3_000));
+            RentalResponse rental = new RentalResponse((long) i + 1, "Rental " + i,
+                    BigDecimal.valueOf(15 + random.nextInt(200)), price, null, null, H2Database.OWNER_ID,
+                    start.plusMinutes(i), null);
+            columns.upsert(rental);
+            all.add(rental);
+            prices[i] = price.doubleValue();
+        }
+        sort = RentalColumns.SortKey.parseAll("-price");
+
+        database = H2Database.create("rental-columns-" + rentals);
+        H2Database.insertRentals(database, all);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Every rental matches, the selection dominates
+     */
+    @Benchmark
+    public Object filterAll() {
+        return columns.filter(null, null, null, null, sort, LIMIT);
+    }
+
+    /**
+     * About a third of the rentals match
+     */
+    @Benchmark
+    public Object filterPriceRange() {
+        return columns.filter(800.0, 1_800.0, null, null, sort, LIMIT);
+    }
+
+    @Benchmark
+    public Object legacy() {
+        Integer[] sorted = new Integer[rentals];
+        for (int i = 0; i < rentals; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.<Integer>comparingDouble(row -> prices[row]).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return Arrays.copyOf(sorted, LIMIT);
+    }
+
+    /**
+     * filterAll as a count and a page query on H2
+     */
+    @Benchmark
+    public Object jpqlFilterAll() {
+        return jpqlFilter(null, null);
+    }
+
+    /**
+     * filterPriceRange as a count and a page query on H2
+     */
+    @Benchmark
+    public Object jpqlFilterPriceRange() {
+        return jpqlFilter(BigDecimal.valueOf(800), BigDecimal.valueOf(1_800));
+    }
+
+    private RentalColumns.Result jpqlFilter(BigDecimal minPrice, BigDecimal maxPrice) {
+        String where = minPrice != null ? "WHERE r.price BETWEEN :minPrice AND :maxPrice " : "";
+        try (EntityManager entityManager = database.createEntityManager()) {
+            TypedQuery<Long> count = entityManager.createQuery("SELECT COUNT(r) FROM Rental r " + where,
+                    Long.class);
+            TypedQuery<RentalResponse> page = entityManager.createQuery(
+                    RentalRepository.RESPONSE_SELECT + where + "ORDER BY r.price DESC, r.id", RentalResponse.class)
+                    .setMaxResults(LIMIT);
+            if (minPrice != null) {
+                for (TypedQuery<?> query : List.of(count, page)) {
+                    query.setParameter("minPrice", minPrice).setParameter("maxPrice", maxPrice);
+                }
+            }
+            return new RentalColumns.Result(count.getSingleResult().intValue(), page.getResultList());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RentalColumnsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
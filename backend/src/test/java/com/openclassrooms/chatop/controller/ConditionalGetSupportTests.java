@@ -0,0 +1,39 @@
+package com.openclassrooms.chatop.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Accept-Encoding negotiation of the gzipped rental catalogue
+ */
+class ConditionalGetSupportTests {
+
+    @Test
+    void gzipAccepted() {
+        assertTrue(ConditionalGetSupport.acceptsGzip("gzip"));
+        assertTrue(ConditionalGetSupport.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ConditionalGetSupport.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(ConditionalGetSupport.acceptsGzip("x-gzip"));
+        assertTrue(ConditionalGetSupport.acceptsGzip("*"));
+        assertTrue(ConditionalGetSupport.acceptsGzip("deflate, *;q=0.1"));
+    }
+
+    @Test
+    void gzipRefused() {
+        assertFalse(ConditionalGetSupport.acceptsGzip(null));
+        assertFalse(ConditionalGetSupport.acceptsGzip(""));
+        assertFalse(ConditionalGetSupport.acceptsGzip("identity"));
+        assertFalse(ConditionalGetSupport.acceptsGzip("gzip;q=0"));
+        assertFalse(ConditionalGetSupport.acceptsGzip("gzip; q=0.000, deflate"));
+        // Explicitly refused, whatever "*" allows
+        assertFalse(ConditionalGetSupport.acceptsGzip("gzip;q=0, *"));
+        assertFalse(ConditionalGetSupport.acceptsGzip("*;q=0"));
+        // Not a coding name, only a substring of one
+        assertFalse(ConditionalGetSupport.acceptsGzip("nogzip"));
+        // Malformed quality values
+        assertFalse(ConditionalGetSupport.acceptsGzip("gzip;q=high"));
+        assertFalse(ConditionalGetSupport.acceptsGzip("gzip;q=2"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.openclassrooms.chatop.search;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Top-k selection of the filter checked against a full sort of the matches
+ * Prices and dates take few distinct values so ties are broken by ID, and
+ * some rentals have no surface
+ */
+class RentalColumnsTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final List<RentalResponse> rentals = new ArrayList<>();
+    private final RentalColumns columns = new RentalColumns();
+
+    RentalColumnsTests() {
+        Random random = new Random(42);
+        for (long id = 1; id <= 2_000; id++) {
+            BigDecimal surface = random.nextInt(10) == 0 ? null : BigDecimal.valueOf(20 + random.nextInt(80));
+            RentalResponse rental = new RentalResponse(id, "Rental " + id, surface,
+                    BigDecimal.valueOf(500 + 50 * random.nextInt(20)), null, null, 1L,
+                    START.plusDays(random.nextInt(30)), null);
+            rentals.add(rental);
+            columns.upsert(rental);
+        }
+    }
+
+    @Test
+    void firstMatchesInSortOrder() {
+        for (String sort : new String[] { "", "price", "-price", "-surface,price", "created_at,-price" }) {
+            for (int limit : new int[] { 1, 20, 100, 5_000 }) {
+                assertFilter(null, null, null, null, sort, limit);
+                assertFilter(600.0, 900.0, null, null, sort, limit);
+                assertFilter(null, 1_000.0, 40.0, 60.0, sort, limit);
+            }
+        }
+    }
+
+    @Test
+    void noMatch() {
+        RentalColumns.Result result = columns.filter(10_000.0, null, null, null, new RentalColumns.SortKey[0], 20);
+        assertEquals(0, result.getTotal());
+        assertEquals(List.of(), result.getRentals());
+    }
+
+    private void assertFilter(Double minPrice, Double maxPrice, Double minSurface, Double maxSurface,
+            String sort, int limit) {
+        RentalColumns.SortKey[] keys = RentalColumns.SortKey.parseAll(sort);
+        boolean checkSurface = minSurface != null || maxSurface != null;
+        List<RentalResponse> expected = rentals.stream()
+                .filter(rental -> (minPrice == null || price(rental) >= minPrice)
+                        && (maxPrice == null || price(rental) <= maxPrice)
+                        && (!checkSurface || ((minSurface == null || surface(rental) >= minSurface)
+                                && (maxSurface == null || surface(rental) <= maxSurface))))
+                .sorted(comparator(keys))
+                .toList();
+
+        RentalColumns.Result result = columns.filter(minPrice, maxPrice, minSurface, maxSurface, keys, limit);
+
+        String context = "sort '" + sort + "', limit " + limit;
+        assertEquals(expected.size(), result.getTotal(), context);
+        assertEquals(ids(expected.subList(0, Math.min(limit, expected.size()))), ids(result.getRentals()),
+                context);
+    }
+
+    private static Comparator<RentalResponse> comparator(RentalColumns.SortKey[] keys) {
+        Comparator<RentalResponse> comparator = (a, b) -> 0;
+        for (RentalColumns.SortKey key : keys) {
+            Comparator<RentalResponse> next = switch (key.getField()) {
+                case PRICE -> Comparator.comparingDouble(RentalColumnsTests::price);
+                case SURFACE -> Comparator.comparingDouble(RentalColumnsTests::surface);
+                case CREATED_AT -> Comparator.comparing(RentalResponse::getCreatedAt);
+            };
+            comparator = comparator.thenComparing(key.isDescending() ? next.reversed() : next);
+        }
+        return comparator.thenComparing(RentalResponse::getId);
+    }
+
+    private static double price(RentalResponse rental) {
+        return rental.getPrice().doubleValue();
+    }
+
+    private static double surface(RentalResponse rental) {
+        return rental.getSurface() != null ? rental.getSurface().doubleValue() : Double.NaN;
+    }
+
+    private static List<Long> ids(List<RentalResponse> rentals) {
+        return rentals.stream().map(RentalResponse::getId).toList();
+    }
+}
@@ -0,0 +1,192 @@
+package com.openclassrooms.chatop.security;
+
+import com.openclassrooms.chatop.dto.response.ErrorResponse;
+import com.openclassrooms.chatop.exceptions.PasswordHashingBusyException;
+import com.openclassrooms.chatop.exceptions.SimpleExceptionHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Saturation of a one-thread, one-slot hashing pool, with a delegate that
+ * blocks until released
+ */
+class BoundedPasswordEncoderTests {
+
+    private static final String PASSWORD = "password123";
+
+    private final BlockingPasswordEncoder delegate = new BlockingPasswordEncoder();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        delegate.release.countDown();
+        callers.shutdownNow();
+        if (encoder != null) {
+            encoder.close();
+        }
+    }
+
+    @Test
+    void rejectedWhenQueueIsFull() throws Exception {
+        encoder = encoder(Duration.ofSeconds(10));
+        String hash = delegate.bcrypt.encode(PASSWORD);
+
+        // First hash running, second one queued
+        Future<Boolean> running = callers.submit(() -> encoder.matches(PASSWORD, hash));
+        assertTrue(delegate.started.tryAcquire(5, TimeUnit.SECONDS));
+        Future<Boolean> queued = callers.submit(() -> encoder.matches(PASSWORD, hash));
+        awaitQueued(1);
+
+        PasswordHashingBusyException e = assertThrows(PasswordHashingBusyException.class,
+                () -> encoder.matches(PASSWORD, hash));
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1, rejected());
+
+        delegate.release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    void timedOutHashIsCancelled() throws Exception {
+        encoder = encoder(Duration.ofSeconds(1));
+
+        Future<String> running = callers.submit(() -> encoder.encode(PASSWORD));
+        assertTrue(delegate.started.tryAcquire(5, TimeUnit.SECONDS));
+
+        // Waits in the queue longer than the timeout
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.encode(PASSWORD));
+        // The first caller gave up as well, its hash is left running
+        ExecutionException e = assertThrows(ExecutionException.class, () -> running.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PasswordHashingBusyException.class, e.getCause());
+        assertEquals(2, rejected());
+
+        // The cancelled hash leaves the queue without reaching the delegate
+        awaitQueued(0);
+        delegate.release.countDown();
+        encoder.encode(PASSWORD);
+        assertEquals(2, delegate.calls.get());
+    }
+
+    @Test
+    void busyMapsTo503WithRetryAfter() {
+        ResponseEntity<ErrorResponse> response = new SimpleExceptionHandler()
+                .handlePasswordHashingBusy(new PasswordHashingBusyException(1));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("AUTH_503", response.getBody().getCode());
+    }
+
+    @Test
+    void weakerHashIsUpgradedAtLogin() {
+        delegate.release.countDown();
+        encoder = encoder(Duration.ofSeconds(10));
+
+        // Stored with strength 4, the delegate hashes with strength 5
+        UserDetails user = User.withUsername("owner@test.com")
+                .password(new BCryptPasswordEncoder(4).encode(PASSWORD))
+                .authorities("USER")
+                .build();
+        UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+        when(passwordService.updatePassword(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(username -> user);
+        provider.setPasswordEncoder(encoder);
+        provider.setUserDetailsPasswordService(passwordService);
+        provider.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), PASSWORD));
+
+        verify(passwordService).updatePassword(any(), argThat(hash -> hash.startsWith("$2a$05$")));
+        assertTrue(encoder.matches(PASSWORD, user.getPassword()));
+    }
+
+    private BoundedPasswordEncoder encoder(Duration timeout) {
+        return new BoundedPasswordEncoder(delegate, 1, 1, timeout, meterRegistry);
+    }
+
+    private double rejected() {
+        return meterRegistry.get("password.hashing.rejected").counter().count();
+    }
+
+    private void awaitQueued(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("executor.queued").tag("name", "password.hashing").gauge().value() != count) {
+            assertTrue(System.nanoTime() < deadline, "Hash not queued");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * BCrypt with strength 5, blocking each hash until released
+     */
+    private static final class BlockingPasswordEncoder implements PasswordEncoder {
+
+        private final PasswordEncoder bcrypt = new BCryptPasswordEncoder(5);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Semaphore started = new Semaphore(0);
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            block();
+            return bcrypt.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            block();
+            return bcrypt.matches(rawPassword, encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return bcrypt.upgradeEncoding(encodedPassword);
+        }
+
+        private void block() {
+            calls.incrementAndGet();
+            started.release();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
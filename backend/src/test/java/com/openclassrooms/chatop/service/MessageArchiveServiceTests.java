@@ -0,0 +1,100 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.archive.ArchivedMessage;
+import com.openclassrooms.chatop.repository.InboxCounterRepository;
+import com.openclassrooms.chatop.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Archiving against mocked repositories: messages marked as read between
+ * the batch read and the delete transaction
+ */
+class MessageArchiveServiceTests {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2020, 1, 1, 12, 0);
+    private static final LocalDateTime READ_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final InboxCounterRepository inboxCounterRepository = mock(InboxCounterRepository.class);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void messagesReadMeanwhileStayInTheTable() throws IOException {
+        // Messages 1 to 3 unread for owner 50 when the batch is read, then
+        // message 2 is marked as read
+        when(messageRepository.findArchivable(any(), any(Limit.class)))
+                .thenReturn(List.of(unread(1), unread(2), unread(3)))
+                .thenReturn(List.of(read(2)))
+                .thenReturn(List.of());
+        when(messageRepository.lockReadStates(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(readState(1, null), readState(2, READ_AT), readState(3, null)));
+        when(messageRepository.lockReadStates(List.of(2L)))
+                .thenReturn(List.of(readState(2, READ_AT)));
+
+        MessageArchiveService archiver = archiver(3);
+        assertEquals(3, archiver.archiveOldMessages());
+
+        // Message 2 is archived again by the next batch, and only the still
+        // unread messages are removed from the owner's count
+        verify(messageRepository).deleteByIdIn(List.of(1L, 3L));
+        verify(messageRepository).deleteByIdIn(List.of(2L));
+        verify(inboxCounterRepository).decrement(50L, 2);
+        verifyNoMoreInteractions(inboxCounterRepository);
+
+        // Message 2 was archived twice, the read copy wins
+        assertEquals(READ_AT, archiver.findById(2L).orElseThrow().getReadAt());
+        assertEquals(List.of(3L, 2L, 1L), archiver.findByRental(1L).stream().map(ArchivedMessage::getId).toList());
+    }
+
+    private MessageArchiveService archiver(int batchSize) throws IOException {
+        return new MessageArchiveService(messageRepository, inboxCounterRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                Jackson2ObjectMapperBuilder.json().build(), new SimpleMeterRegistry(),
+                true, directory, Duration.ofDays(365), batchSize, 4);
+    }
+
+    private static ArchivedMessage unread(long id) {
+        return new ArchivedMessage(id, 1L, 100L, 50L, "Message " + id, CREATED_AT.plusMinutes(id),
+                CREATED_AT.plusMinutes(id), null);
+    }
+
+    private static ArchivedMessage read(long id) {
+        return new ArchivedMessage(id, 1L, 100L, 50L, "Message " + id, CREATED_AT.plusMinutes(id),
+                CREATED_AT.plusMinutes(id), READ_AT);
+    }
+
+    private static MessageRepository.ReadState readState(long id, LocalDateTime readAt) {
+        return new MessageRepository.ReadState() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getReadAt() {
+                return readAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.request.MessageRequest;
+import com.openclassrooms.chatop.exceptions.MessageQueueFullException;
+import com.openclassrooms.chatop.ingestion.IngestionMode;
+import com.openclassrooms.chatop.ingestion.PendingMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Queued ingestion against a mocked message service: shutdown with messages
+ * still queued, database failures while writing
+ */
+class MessageIngestionServiceTests {
+
+    private final MessageService messageService = mock(MessageService.class);
+
+    MessageIngestionServiceTests() {
+        when(messageService.prepareMessage(any(), any())).thenAnswer(invocation -> new PendingMessage(1L, 1L,
+                "Rental", 2L, ((MessageRequest) invocation.getArgument(0)).getMessage(), LocalDateTime.now()));
+    }
+
+    @Test
+    void stopWritesEveryAcceptedMessage() throws InterruptedException {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            Thread.sleep(20);
+            List<PendingMessage> batch = invocation.getArgument(0);
+            batch.forEach(pending -> written.add(pending.getMessage()));
+            return null;
+        }).when(messageService).saveMessages(anyList());
+
+        MessageIngestionService ingestion = ingestion(IngestionMode.ENQUEUE);
+        for (int i = 0; i < 100; i++) {
+            ingestion.submit(new MessageRequest(1L, 1L, "Message " + i), "tenant@test.com");
+        }
+
+        // Most messages are still queued, none is dropped
+        ingestion.stop();
+        assertEquals(100, written.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Message " + i, written.get(i));
+        }
+
+        assertThrows(MessageQueueFullException.class,
+                () -> ingestion.submit(new MessageRequest(1L, 1L, "Too late"), "tenant@test.com"));
+    }
+
+    @Test
+    void transientFailuresAreRetried() throws InterruptedException {
+        // Database unreachable for the first two attempts
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                        new SQLTransientConnectionException("Connection is not available"));
+            }
+            List<PendingMessage> batch = invocation.getArgument(0);
+            batch.forEach(pending -> written.add(pending.getMessage()));
+            return null;
+        }).when(messageService).saveMessages(anyList());
+
+        MessageIngestionService ingestion = ingestion(IngestionMode.COMMIT);
+        assertTrue(ingestion.submit(new MessageRequest(1L, 1L, "Hello"), "tenant@test.com"));
+        ingestion.stop();
+
+        assertEquals(3, attempts.get());
+        assertEquals(List.of("Hello"), written);
+    }
+
+    @Test
+    void refusedMessagesAreDropped() throws InterruptedException {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<PendingMessage> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(pending -> pending.getMessage().equals("Refused"))) {
+                throw new DataIntegrityViolationException("Cannot add or update a child row");
+            }
+            batch.forEach(pending -> written.add(pending.getMessage()));
+            return null;
+        }).when(messageService).saveMessages(anyList());
+
+        MessageIngestionService ingestion = ingestion(IngestionMode.COMMIT);
+        assertThrows(RuntimeException.class,
+                () -> ingestion.submit(new MessageRequest(1L, 1L, "Refused"), "tenant@test.com"));
+        assertTrue(ingestion.submit(new MessageRequest(1L, 1L, "Accepted"), "tenant@test.com"));
+        ingestion.stop();
+
+        assertEquals(List.of("Accepted"), written);
+    }
+
+    @Test
+    void commitTimeoutLeavesTheMessageQueued() throws InterruptedException {
+        CountDownLatch databaseBack = new CountDownLatch(1);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            databaseBack.await();
+            List<PendingMessage> batch = invocation.getArgument(0);
+            batch.forEach(pending -> written.add(pending.getMessage()));
+            return null;
+        }).when(messageService).saveMessages(anyList());
+
+        MessageIngestionService ingestion = new MessageIngestionService(messageService, new SimpleMeterRegistry(),
+                IngestionMode.COMMIT, 1_000, 5, Duration.ofMillis(100), Duration.ofSeconds(30));
+        ingestion.start();
+
+        // Not committed in time: accepted, not failed, and written later
+        assertFalse(ingestion.submit(new MessageRequest(1L, 1L, "Slow"), "tenant@test.com"));
+        databaseBack.countDown();
+        ingestion.stop();
+
+        assertEquals(List.of("Slow"), written);
+    }
+
+    private MessageIngestionService ingestion(IngestionMode mode) {
+        MessageIngestionService ingestion = new MessageIngestionService(messageService, new SimpleMeterRegistry(),
+                mode, 1_000, 5, Duration.ofSeconds(5), Duration.ofSeconds(30));
+        ingestion.start();
+        return ingestion;
+    }
+}
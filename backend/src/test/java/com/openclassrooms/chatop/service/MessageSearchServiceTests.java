@@ -0,0 +1,106 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.archive.ArchivedMessage;
+import com.openclassrooms.chatop.dto.response.MessageResponse;
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.entity.User;
+import com.openclassrooms.chatop.event.MessagesReadEvent;
+import com.openclassrooms.chatop.repository.MessageRepository;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import com.openclassrooms.chatop.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Search partitions loaded from the messages table and the archive, against
+ * mocked repositories
+ * Owner 1 has rental 10; the owner wrote about rental 20 of another owner
+ */
+class MessageSearchServiceTests {
+
+    private static final String OWNER = "owner@test.com";
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2020, 1, 1, 12, 0);
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RentalRepository rentalRepository = mock(RentalRepository.class);
+    private final MessageArchiveService messageArchiveService = mock(MessageArchiveService.class);
+
+    private final MessageSearchService searchService = new MessageSearchService(messageRepository,
+            userRepository, rentalRepository, messageArchiveService, new SimpleMeterRegistry(), true, 100,
+            Duration.ofHours(1));
+
+    MessageSearchServiceTests() {
+        User owner = new User(OWNER, "Owner", "password123");
+        owner.setId(1L);
+        when(userRepository.findByEmail(OWNER)).thenReturn(Optional.of(owner));
+        when(rentalRepository.findResponsesByOwnerId(1L)).thenReturn(List.of(rental(10, "Sea view flat")));
+        when(rentalRepository.findResponsesByIdIn(Set.of(20L))).thenReturn(List.of(rental(20, "City loft")));
+    }
+
+    @Test
+    void archivedMessagesStaySearchable() {
+        // Message 3 left the table after the inbox query, message 2 was
+        // archived twice and is still in the table
+        when(messageRepository.findByUserInvolvement(any())).thenReturn(List.of(
+                new MessageResponse(2L, "Is the garden shared?", 10L, "Sea view flat", 5L, CREATED_AT,
+                        CREATED_AT, CREATED_AT.plusDays(1))));
+        when(messageArchiveService.isEmpty()).thenReturn(false);
+        when(messageArchiveService.findByUserInvolvement(eq(1L), eq(Set.of(10L)))).thenReturn(List.of(
+                archived(3, 10, 5, 1, "Is the garden private?"),
+                archived(2, 10, 5, 1, "Is the garden shared?"),
+                archived(1, 20, 1, 9, "Is the loft quiet at night?")));
+
+        List<MessageResponse> garden = searchService.search(OWNER, "garden", 10);
+        assertEquals(2, garden.size());
+        // The table copy wins over the archived one
+        MessageResponse shared = garden.stream().filter(message -> message.getId() == 2L)
+                .findFirst().orElseThrow();
+        assertNotNull(shared.getReadAt());
+
+        List<MessageResponse> loft = searchService.search(OWNER, "quiet loft", 10);
+        assertEquals(List.of(1L), loft.stream().map(MessageResponse::getId).toList());
+        assertEquals("City loft", loft.get(0).getRentalName());
+
+        // Archived messages can no longer be marked as read
+        searchService.onMessagesRead(new MessagesReadEvent(1L, null, null, CREATED_AT.plusDays(2)));
+        MessageResponse privateGarden = searchService.search(OWNER, "private", 10).get(0);
+        assertEquals(3L, privateGarden.getId());
+        assertNull(privateGarden.getReadAt());
+    }
+
+    @Test
+    void emptyArchiveIsNotRead() {
+        when(messageRepository.findByUserInvolvement(any())).thenReturn(List.of(
+                new MessageResponse(2L, "Is the garden shared?", 10L, "Sea view flat", 5L, CREATED_AT,
+                        CREATED_AT, null)));
+        when(messageArchiveService.isEmpty()).thenReturn(true);
+
+        assertEquals(1, searchService.search(OWNER, "garden", 10).size());
+        verifyNoInteractions(rentalRepository);
+    }
+
+    private static RentalResponse rental(long id, String name) {
+        return new RentalResponse(id, name, null, null, null, null, 1L, CREATED_AT, CREATED_AT);
+    }
+
+    private static ArchivedMessage archived(long id, long rentalId, long userId, long ownerId, String text) {
+        return new ArchivedMessage(id, rentalId, userId, ownerId, text, CREATED_AT.plusMinutes(id),
+                CREATED_AT.plusMinutes(id), null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rental changes applied to the columns out of commit order, against a
+ * mocked repository
+ * Rental 1 is at version 2 (price 900) when the columns are built
+ */
+class RentalFilterServiceTests {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final RentalRepository rentalRepository = mock(RentalRepository.class);
+    private final RentalFilterService filterService = new RentalFilterService(rentalRepository);
+
+    RentalFilterServiceTests() {
+        when(rentalRepository.findAllVersions()).thenReturn(List.of(version(1, 2)));
+        when(rentalRepository.findAllResponses()).thenReturn(List.of(rental(1, 900)));
+        filterService.rebuild();
+    }
+
+    @Test
+    void outdatedChangesAreIgnored() {
+        // Committed before the columns were built
+        filterService.onRentalChanged(new RentalChangedEvent(rental(1, 500), 1, false));
+        assertEquals(900, price());
+
+        // Version 4 committed after version 3, but its listener ran first
+        filterService.onRentalChanged(new RentalChangedEvent(rental(1, 700), 4, false));
+        filterService.onRentalChanged(new RentalChangedEvent(rental(1, 600), 3, false));
+        assertEquals(700, price());
+
+        // Unknown rental, created after the columns were built
+        filterService.onRentalChanged(new RentalChangedEvent(rental(2, 800), 0, true));
+        assertEquals(2, filterService.filter(null, null, null, null, "price", 10).getTotal());
+    }
+
+    private int price() {
+        return filterService.filter(null, null, null, null, null, 10).getRentals().get(0).getPrice().intValue();
+    }
+
+    private static RentalResponse rental(long id, int price) {
+        return new RentalResponse(id, "Rental " + id, BigDecimal.valueOf(50), BigDecimal.valueOf(price), null,
+                null, 1L, CREATED_AT, CREATED_AT);
+    }
+
+    private static RentalRepository.RentalVersion version(long id, long version) {
+        return new RentalRepository.RentalVersion() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rental changes applied to the search index out of commit order, against a
+ * mocked repository
+ * Rental 1 is at version 2 ("Sea view flat") when the index is built
+ */
+class RentalSearchServiceTests {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final RentalRepository rentalRepository = mock(RentalRepository.class);
+    private final RentalSearchService searchService = new RentalSearchService(rentalRepository, true);
+
+    RentalSearchServiceTests() {
+        when(rentalRepository.findAllVersions()).thenReturn(List.of(version(1, 2)));
+        when(rentalRepository.findAllResponses()).thenReturn(List.of(rental(1, "Sea view flat")));
+        searchService.rebuildIndex();
+    }
+
+    @Test
+    void outdatedChangesAreIgnored() {
+        // Committed before the index was built
+        searchService.onRentalChanged(new RentalChangedEvent(rental(1, "Garden house"), 1, false));
+        assertEquals(List.of(), names("garden"));
+        assertEquals(List.of("Sea view flat"), names("sea"));
+
+        // Version 4 committed after version 3, but its listener ran first
+        searchService.onRentalChanged(new RentalChangedEvent(rental(1, "City loft"), 4, false));
+        searchService.onRentalChanged(new RentalChangedEvent(rental(1, "Mountain chalet"), 3, false));
+        assertEquals(List.of("City loft"), names("loft"));
+        assertEquals(List.of(), names("chalet"));
+    }
+
+    private List<String> names(String query) {
+        return searchService.search(query, 10).stream().map(RentalResponse::getName).toList();
+    }
+
+    private static RentalResponse rental(long id, String name) {
+        return new RentalResponse(id, name, BigDecimal.valueOf(50), BigDecimal.valueOf(900), null, null, 1L,
+                CREATED_AT, CREATED_AT);
+    }
+
+    private static RentalRepository.RentalVersion version(long id, long version) {
+        return new RentalRepository.RentalVersion() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.response.RentalResponse;
+import com.openclassrooms.chatop.event.RentalChangedEvent;
+import com.openclassrooms.chatop.repository.RentalRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rental changes applied to the statistics out of commit order, against a
+ * mocked repository
+ * Rental 1 is at version 2 (price 900) when the statistics are built
+ */
+class RentalStatisticsServiceTests {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final RentalRepository rentalRepository = mock(RentalRepository.class);
+    private final RentalStatisticsService statisticsService = new RentalStatisticsService(rentalRepository);
+
+    RentalStatisticsServiceTests() {
+        when(rentalRepository.findAllVersions()).thenReturn(List.of(version(1, 2)));
+        when(rentalRepository.findAllResponses()).thenReturn(List.of(rental(1, 900)));
+        statisticsService.rebuild();
+    }
+
+    @Test
+    void outdatedChangesAreIgnored() {
+        // Committed before the statistics were built
+        statisticsService.onRentalChanged(new RentalChangedEvent(rental(1, 500), 1, false));
+        assertEquals(new BigDecimal("900.00"), statisticsService.getStatistics().getMeanPrice());
+
+        // Version 4 committed after version 3, but its listener ran first
+        statisticsService.onRentalChanged(new RentalChangedEvent(rental(1, 700), 4, false));
+        statisticsService.onRentalChanged(new RentalChangedEvent(rental(1, 600), 3, false));
+        assertEquals(new BigDecimal("700.00"), statisticsService.getStatistics().getMeanPrice());
+        assertEquals(1, statisticsService.getStatistics().getCount());
+    }
+
+    private static RentalResponse rental(long id, int price) {
+        return new RentalResponse(id, "Rental " + id, BigDecimal.valueOf(50), BigDecimal.valueOf(price), null,
+                null, 1L, CREATED_AT, CREATED_AT);
+    }
+
+    private static RentalRepository.RentalVersion version(long id, long version) {
+        return new RentalRepository.RentalVersion() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+}
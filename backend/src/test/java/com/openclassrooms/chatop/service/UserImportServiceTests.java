@@ -0,0 +1,157 @@
+package com.openclassrooms.chatop.service;
+
+import com.openclassrooms.chatop.dto.response.UserImportEvent;
+import com.openclassrooms.chatop.exceptions.InvalidImportFileException;
+import com.openclassrooms.chatop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk user import against an in-memory users table, batches of 2 rows
+ * The users repository is a mock, so its duplicate check can miss an email
+ * the table already holds and force the row by row fallback
+ */
+class UserImportServiceTests {
+
+    // Registered emails the duplicate check query knows about
+    private static final Set<String> REGISTERED = Set.of("taken@test.com");
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private Cache hibernateCache;
+    private UserImportService service;
+    private final List<UserImportEvent> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "email VARCHAR(255) NOT NULL UNIQUE, name VARCHAR(255), password VARCHAR(255), "
+                + "created_at TIMESTAMP, updated_at TIMESTAMP, token_version INT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO users (email, name, password, token_version) VALUES (?, ?, ?, 0)",
+                "race@test.com", "Race", "hash");
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findExistingEmails(any())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            return emails.stream().filter(REGISTERED::contains).toList();
+        });
+
+        hibernateCache = mock(Cache.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getCache()).thenReturn(hibernateCache);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+
+        service = new UserImportService(userRepository, mock(AuthService.class), new BCryptPasswordEncoder(4),
+                jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(database)),
+                entityManagerFactory, Jackson2ObjectMapperBuilder.json().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(), "admin@test.com", 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void ndjsonRowsAreRejectedOneByOne() throws Exception {
+        String file = """
+                {"email":"alice@test.com","name":"Alice","password":"password123"}
+                null
+                {"email":"taken@test.com","name":"Taken","password":"password123"}
+                {"email":"ALICE@test.com","name":"Alice again","password":"password123"}
+
+                {"email":"race@test.com","name":"Race","password":"password123"}
+                {"email":"bob@test.com","name":"Bob","password":"password123"}
+                {}
+                not json
+                """;
+
+        UserImportEvent summary = service.importUsers(new StringReader(file), UserImportService.Format.NDJSON,
+                events::add);
+
+        assertEquals(8, summary.getProcessed());
+        assertEquals(2, summary.getImported());
+        assertEquals(6, summary.getFailed());
+        assertEquals("Unreadable row", error(2));
+        assertEquals("Email already registered", error(3));
+        assertEquals("Duplicate email in import", error(4));
+        // Missed by the duplicate check, rejected by the unique index
+        assertEquals("Email already registered", error(6));
+        assertTrue(error(8).contains("email"));
+        assertEquals("Unreadable row", error(9));
+
+        assertEquals(List.of("alice@test.com", "bob@test.com", "race@test.com"),
+                jdbcTemplate.queryForList("SELECT email FROM users ORDER BY email", String.class));
+        verify(hibernateCache, atLeastOnce())
+                .evictQueryRegion(UserRepository.BY_EMAIL_QUERY_REGION);
+    }
+
+    @Test
+    void csvColumnsInAnyOrderWithQuotedFields() throws Exception {
+        String file = """
+                password,email,name
+                "pass,word123",dan@test.com,"Dan \"\"D\"\""
+                short,eve@test.com,Eve
+                "unterminated,frank@test.com,Frank
+                """;
+
+        UserImportEvent summary = service.importUsers(new StringReader(file), UserImportService.Format.CSV,
+                events::add);
+
+        assertEquals(3, summary.getProcessed());
+        assertEquals(1, summary.getImported());
+        assertTrue(error(3).startsWith("password"));
+        assertEquals("Unreadable row", error(4));
+        assertEquals("Dan \"D\"", jdbcTemplate.queryForObject(
+                "SELECT name FROM users WHERE email = 'dan@test.com'", String.class));
+        String hash = jdbcTemplate.queryForObject(
+                "SELECT password FROM users WHERE email = 'dan@test.com'", String.class);
+        assertTrue(new BCryptPasswordEncoder().matches("pass,word123", hash));
+    }
+
+    @Test
+    void csvHeaderWithoutRequiredColumns() {
+        assertThrows(InvalidImportFileException.class, () -> service.importUsers(
+                new StringReader("email,name\njohn@test.com,John\n"), UserImportService.Format.CSV, events::add));
+        assertTrue(events.isEmpty());
+    }
+
+    private String error(long line) {
+        return events.stream()
+                .filter(event -> UserImportEvent.ERROR.equals(event.getType()) && event.getLine() == line)
+                .map(UserImportEvent::getError)
+                .findFirst()
+                .orElse(null);
+    }
+}
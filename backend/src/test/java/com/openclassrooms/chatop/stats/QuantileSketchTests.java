@@ -0,0 +1,137 @@
+package com.openclassrooms.chatop.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Quantiles of the sketch checked against the exact quantiles of the added
+ * values, and sketches built in different ways compared with each other
+ * Values span several orders of magnitude, as rental prices per m²
+ */
+class QuantileSketchTests {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double[] QUANTILES = { 0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1 };
+
+    @Test
+    void quantilesWithinRelativeAccuracy() {
+        double[] values = values(new Random(42), 10_000);
+        QuantileSketch sketch = sketch(values);
+        assertEquals(values.length, sketch.getCount());
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double quantile : QUANTILES) {
+            double exact = sorted[(int) Math.floor(quantile * (sorted.length - 1))];
+            double estimate = sketch.quantile(quantile);
+            assertTrue(Math.abs(estimate - exact) <= RELATIVE_ACCURACY * exact * (1 + 1e-9),
+                    () -> "Quantile " + quantile + ": " + estimate + " for " + exact);
+        }
+    }
+
+    @Test
+    void removeUndoesAdd() {
+        Random random = new Random(7);
+        double[] kept = values(random, 2_000);
+        double[] removed = values(random, 500);
+
+        QuantileSketch sketch = sketch(kept);
+        for (double value : removed) {
+            sketch.add(value);
+        }
+        for (double value : removed) {
+            sketch.remove(value);
+        }
+
+        assertSameSketch(sketch(kept), sketch);
+        assertThrows(IllegalStateException.class, () -> sketch.remove(1e12));
+    }
+
+    @Test
+    void mergeMatchesAddingEveryValue() {
+        Random random = new Random(11);
+        double[] first = values(random, 1_000);
+        double[] second = values(random, 3_000);
+
+        QuantileSketch merged = sketch(first);
+        merged.merge(sketch(second));
+
+        QuantileSketch all = sketch(first);
+        for (double value : second) {
+            all.add(value);
+        }
+        assertSameSketch(all, merged);
+
+        assertThrows(IllegalArgumentException.class, () -> merged.merge(new QuantileSketch(0.05)));
+    }
+
+    @Test
+    void zeroAndNegativeValues() {
+        QuantileSketch sketch = new QuantileSketch(RELATIVE_ACCURACY);
+        assertNull(sketch.quantile(0.5));
+
+        // Counted as zero, below every positive value
+        sketch.add(0);
+        sketch.add(-250);
+        sketch.add(100);
+        sketch.add(300);
+        assertEquals(4, sketch.getCount());
+        assertEquals(2, sketch.getBucketCount());
+        assertEquals(0.0, sketch.quantile(0));
+        assertEquals(0.0, sketch.quantile(0.25));
+        // Lower median: rank floor(q * (count - 1))
+        assertEquals(0.0, sketch.quantile(0.5));
+        assertEquals(100, sketch.quantile(0.75), 100 * RELATIVE_ACCURACY);
+        assertEquals(300, sketch.quantile(1), 300 * RELATIVE_ACCURACY);
+
+        sketch.remove(-250);
+        sketch.remove(0);
+        assertEquals(100, sketch.quantile(0), 100 * RELATIVE_ACCURACY);
+        assertThrows(IllegalStateException.class, () -> sketch.remove(0));
+
+        sketch.remove(100);
+        sketch.remove(300);
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.getBucketCount());
+        assertNull(sketch.quantile(0.5));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(0));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(1));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(RELATIVE_ACCURACY).quantile(1.5));
+    }
+
+    private static void assertSameSketch(QuantileSketch expected, QuantileSketch actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getBucketCount(), actual.getBucketCount());
+        for (double quantile : QUANTILES) {
+            assertEquals(expected.quantile(quantile), actual.quantile(quantile), "Quantile " + quantile);
+        }
+    }
+
+    private static QuantileSketch sketch(double[] values) {
+        QuantileSketch sketch = new QuantileSketch(RELATIVE_ACCURACY);
+        for (double value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    // Log-uniform between 1 and 100 000
+    private static double[] values(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.pow(10, 5 * random.nextDouble());
+        }
+        return values;
+    }
+}
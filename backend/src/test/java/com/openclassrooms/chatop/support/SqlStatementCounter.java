@@ -0,0 +1,45 @@
+package com.openclassrooms.chatop.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate statement inspector recording the SQL statements of the current
+ * thread
+ * Registered through hibernate.session_factory.statement_inspector in the test
+ * profile. Statements issued by background threads (index builds, snapshot
+ * rebuilds) are not recorded, so counts only cover the request under test.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    /**
+     * Forget the statements recorded so far
+     */
+    public static void reset() {
+        STATEMENTS.get().clear();
+    }
+
+    /**
+     * Number of statements recorded since the last reset
+     */
+    public static int count() {
+        return STATEMENTS.get().size();
+    }
+
+    /**
+     * Statements recorded since the last reset, for assertion messages
+     */
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS.get());
+    }
+}
@@ -0,0 +1,109 @@
+-- Inbox query benchmark - ChatOp
+--
+-- Compares the former "user involvement" inbox query (OR across the join)
+-- with the UNION ALL of two indexed branches used by MessageRepository.
+-- Run it on a scratch database created from script.sql, never on real data:
+--
+--   mysql -u root -p -e "CREATE DATABASE chatop_bench"
+--   mysql -u root -p chatop_bench < script.sql
+--   mysql -u root -p chatop_bench < benchmark/inbox-benchmark.sql
+--
+-- Seeding takes a few minutes. EXPLAIN ANALYZE (MySQL 8.0.18+) prints the
+-- plan with the actual time of each step for the busiest owner. On MariaDB,
+-- replace EXPLAIN ANALYZE with ANALYZE FORMAT=JSON (r_total_time_ms).
+
+-- ---------------------------------------------------------------------------
+-- Seed: 20 000 users, 100 000 rentals, 3 000 000 messages
+-- ---------------------------------------------------------------------------
+
+SET @users = 20000;
+SET @rentals = 100000;
+SET @messages = 3000000;
+
+-- Numbers 0 to 9999, joined with itself to generate the rows. A regular
+-- table: MySQL cannot open a TEMPORARY table twice in one query (ERROR 1137)
+DROP TABLE IF EXISTS seq;
+CREATE TABLE seq (n INT PRIMARY KEY);
+INSERT INTO seq (n)
+SELECT a.d + b.d * 10 + c.d * 100 + d.d * 1000
+FROM (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) a,
+     (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) b,
+     (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) c,
+     (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d;
+
+INSERT INTO `USERS` (`email`, `name`, `password`, `created_at`, `updated_at`)
+SELECT CONCAT('user', s1.n * 10000 + s2.n, '@bench.test'), CONCAT('User ', s1.n * 10000 + s2.n),
+       '$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchma', NOW(), NOW()
+FROM seq s1 JOIN seq s2
+WHERE s1.n <= @users DIV 10000 AND s1.n * 10000 + s2.n < @users;
+
+-- Owners are skewed: the first 100 users own a third of the rentals
+INSERT INTO `RENTALS` (`name`, `surface`, `price`, `picture`, `description`, `owner_id`, `created_at`, `updated_at`)
+SELECT CONCAT('Rental ', s1.n * 10000 + s2.n), 20 + (s2.n % 180), 300 + (s2.n % 2700), NULL, 'Benchmark rental',
+       IF(s2.n % 3 = 0, 1 + (s2.n % 100), 1 + ((s1.n * 10000 + s2.n) * 7919) % @users),
+       NOW() - INTERVAL (s1.n * 10000 + s2.n) MINUTE, NOW()
+FROM seq s1 JOIN seq s2
+WHERE s1.n <= @rentals DIV 10000 AND s1.n * 10000 + s2.n < @rentals;
+
+INSERT INTO `MESSAGES` (`rental_id`, `user_id`, `message`, `created_at`, `updated_at`)
+SELECT 1 + ((s1.n * 10000 + s2.n) * 104729) % @rentals,
+       1 + ((s1.n * 10000 + s2.n) * 15485863) % @users,
+       'Hello, is this rental still available for next month?',
+       NOW() - INTERVAL (s1.n * 10000 + s2.n) SECOND, NOW()
+FROM seq s1 JOIN seq s2
+WHERE s1.n <= @messages DIV 10000 AND s1.n * 10000 + s2.n < @messages;
+
+DROP TABLE seq;
+
+ANALYZE TABLE `USERS`, `RENTALS`, `MESSAGES`;
+
+-- Busiest owner
+SELECT `owner_id` FROM `RENTALS` GROUP BY `owner_id` ORDER BY COUNT(*) DESC LIMIT 1 INTO @user;
+
+-- ---------------------------------------------------------------------------
+-- Before: OR across the join, no index can serve the predicate
+-- ---------------------------------------------------------------------------
+
+EXPLAIN ANALYZE
+SELECT m.`id`, m.`message`, r.`id`, r.`name`, m.`user_id`, m.`created_at`, m.`updated_at`
+FROM `MESSAGES` m JOIN `RENTALS` r ON r.`id` = m.`rental_id`
+WHERE m.`user_id` = @user OR r.`owner_id` = @user
+ORDER BY m.`created_at` DESC, m.`id` DESC
+LIMIT 21;
+
+-- ---------------------------------------------------------------------------
+-- After: one index range scan per branch, each limited before the merge
+-- ---------------------------------------------------------------------------
+
+EXPLAIN ANALYZE
+SELECT x.* FROM (
+    (SELECT m.`id`, m.`message`, r.`id` AS rental_id, r.`name`, m.`user_id`, m.`created_at`, m.`updated_at`
+     FROM `MESSAGES` m JOIN `RENTALS` r ON r.`id` = m.`rental_id`
+     WHERE m.`user_id` = @user
+     ORDER BY m.`created_at` DESC, m.`id` DESC LIMIT 21)
+    UNION ALL
+    (SELECT m.`id`, m.`message`, r.`id` AS rental_id, r.`name`, m.`user_id`, m.`created_at`, m.`updated_at`
+     FROM `MESSAGES` m JOIN `RENTALS` r ON r.`id` = m.`rental_id`
+     WHERE r.`owner_id` = @user AND m.`user_id` <> @user
+     ORDER BY m.`created_at` DESC, m.`id` DESC LIMIT 21)
+) x
+ORDER BY x.`created_at` DESC, x.`id` DESC
+LIMIT 21;
+
+-- Full inbox, before and after
+
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM `MESSAGES` m JOIN `RENTALS` r ON r.`id` = m.`rental_id`
+WHERE m.`user_id` = @user OR r.`owner_id` = @user;
+
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM (
+    SELECT m.`id` FROM `MESSAGES` m WHERE m.`user_id` = @user
+    UNION ALL
+    SELECT m.`id` FROM `MESSAGES` m JOIN `RENTALS` r ON r.`id` = m.`rental_id`
+    WHERE r.`owner_id` = @user AND m.`user_id` <> @user
+) x;
@@ -4,7 +4,8 @@ CREATE TABLE `USERS` (
   `name` varchar(255),
   `password` varchar(255),
   `created_at` timestamp,
-  `updated_at` timestamp
+  `updated_at` timestamp,
+  `token_version` integer NOT NULL DEFAULT 0
 );
 
 CREATE TABLE `RENTALS` (
@@ -16,7 +17,8 @@ CREATE TABLE `RENTALS` (
   `description` varchar(2000),
   `owner_id` integer NOT NULL,
   `created_at` timestamp,
-  `updated_at` timestamp
+  `updated_at` timestamp,
+  `version` integer NOT NULL DEFAULT 0
 );
 
 CREATE TABLE `MESSAGES` (
@@ -25,13 +27,59 @@ CREATE TABLE `MESSAGES` (
   `user_id` integer,
   `message` varchar(2000),
   `created_at` timestamp,
-  `updated_at` timestamp
+  `updated_at` timestamp,
+  `read_at` timestamp NULL
 );
 
+CREATE TABLE `CONVERSATIONS` (
+  `rental_id` integer,
+  `user_id` integer,
+  `owner_id` integer NOT NULL,
+  `last_message_id` integer NOT NULL,
+  `last_message` varchar(200) NOT NULL,
+  `last_message_at` timestamp NOT NULL,
+  `message_count` integer NOT NULL,
+  PRIMARY KEY (`rental_id`, `user_id`)
+);
+
+CREATE TABLE `INBOX_COUNTERS` (
+  `user_id` integer PRIMARY KEY,
+  `unread_count` integer NOT NULL DEFAULT 0
+);
+
+-- Message IDs are allocated by blocks of 50 (Hibernate pooled table generator)
+-- so inserts can be batched. next_val must stay above the highest MESSAGES id:
+-- seed it with MAX(id) + 50 when upgrading an existing database
+CREATE TABLE `ID_SEQUENCES` (
+  `sequence_name` varchar(255) PRIMARY KEY,
+  `next_val` bigint
+);
+
+INSERT INTO `ID_SEQUENCES` (`sequence_name`, `next_val`)
+SELECT 'messages', COALESCE(MAX(`id`), 0) + 50 FROM `MESSAGES`;
+
 CREATE UNIQUE INDEX `USERS_index` ON `USERS` (`email`);
 
+CREATE INDEX `RENTALS_created_at_id_index` ON `RENTALS` (`created_at`, `id`);
+
+CREATE INDEX `RENTALS_owner_id_index` ON `RENTALS` (`owner_id`);
+
+CREATE INDEX `MESSAGES_rental_id_created_at_id_index` ON `MESSAGES` (`rental_id`, `created_at`, `id`);
+
+CREATE INDEX `MESSAGES_user_id_created_at_id_index` ON `MESSAGES` (`user_id`, `created_at`, `id`);
+
+CREATE INDEX `CONVERSATIONS_owner_id_last_message_at_index` ON `CONVERSATIONS` (`owner_id`, `last_message_at`, `last_message_id`);
+
+CREATE INDEX `CONVERSATIONS_user_id_last_message_at_index` ON `CONVERSATIONS` (`user_id`, `last_message_at`, `last_message_id`);
+
 ALTER TABLE `RENTALS` ADD FOREIGN KEY (`owner_id`) REFERENCES `USERS` (`id`);
 
 ALTER TABLE `MESSAGES` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
 
 ALTER TABLE `MESSAGES` ADD FOREIGN KEY (`rental_id`) REFERENCES `RENTALS` (`id`);
+
+ALTER TABLE `CONVERSATIONS` ADD FOREIGN KEY (`rental_id`) REFERENCES `RENTALS` (`id`);
+
+ALTER TABLE `CONVERSATIONS` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+
+ALTER TABLE `INBOX_COUNTERS` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);